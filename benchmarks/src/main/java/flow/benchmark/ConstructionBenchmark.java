@@ -0,0 +1,89 @@
+package flow.benchmark;
+
+import flow.benchmark.NetworkGenerator.Scale;
+import flow.benchmark.NetworkGenerator.Shape;
+import flow.flownetwork.CompressedResidualGraph;
+import flow.flownetwork.ResidualGraph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Graph construction alone. Building from an edge list is measured at every scale, building from the dense
+ * matrix (ResidualGraph.createGraph and CompressedResidualGraph.createGraph) only where the matrix fits.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ConstructionBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Edges {
+        @Param({ "SPARSE", "DENSE", "GRID", "AK", "GENRMF" })
+        public Shape shape;
+
+        @Param({ "SMALL", "MEDIUM", "LARGE" })
+        public Scale scale;
+
+        @Param({ "42" })
+        public long seed;
+
+        GeneratedNetwork network;
+
+        @Setup(Level.Trial)
+        public void generate() {
+            network = NetworkGenerator.generate(shape, scale, seed);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Matrix {
+        @Param({ "SPARSE", "DENSE", "GRID", "AK", "GENRMF" })
+        public Shape shape;
+
+        @Param({ "SMALL", "MEDIUM" })
+        public Scale scale;
+
+        @Param({ "42" })
+        public long seed;
+
+        int[][] matrix;
+
+        @Setup(Level.Trial)
+        public void generate() {
+            matrix = NetworkGenerator.generate(shape, scale, seed).matrix();
+        }
+    }
+
+    @Benchmark
+    public CompressedResidualGraph compressedFromEdges(Edges edges) {
+        return edges.network.compressed();
+    }
+
+    @Benchmark
+    public CompressedResidualGraph compressedFromMatrix(Matrix matrix) {
+        CompressedResidualGraph graph = new CompressedResidualGraph();
+        graph.createGraph(matrix.matrix);
+        return graph;
+    }
+
+    @Benchmark
+    public ResidualGraph residualFromMatrix(Matrix matrix) {
+        ResidualGraph graph = new ResidualGraph();
+        graph.createGraph(matrix.matrix);
+        return graph;
+    }
+}
@@ -0,0 +1,60 @@
+package flow.benchmark;
+
+import flow.flownetwork.CompressedResidualGraph;
+import flow.flownetwork.EdgeList;
+
+/**
+ * A generated instance: its edges and the designated source and sink.
+ */
+public class GeneratedNetwork {
+    private final int numberOfVertices;
+    private final int source;
+    private final int sink;
+    private final EdgeList edges;
+
+    public GeneratedNetwork(int numberOfVertices, int source, int sink, EdgeList edges) {
+        this.numberOfVertices = numberOfVertices;
+        this.source = source;
+        this.sink = sink;
+        this.edges = edges;
+    }
+
+    /**
+     * @return a residual graph with the artificial terminals attached to the designated source and sink.
+     */
+    public CompressedResidualGraph compressed() {
+        CompressedResidualGraph graph = new CompressedResidualGraph();
+        graph.createGraph(numberOfVertices, edges, source, sink);
+        return graph;
+    }
+
+    /**
+     * @return the capacities as the dense matrix FlowSolverDriver reads, parallel edges summed.
+     */
+    public int[][] matrix() {
+        int[][] matrix = new int[numberOfVertices][numberOfVertices];
+        for (int e = 0; e < edges.size(); e++)
+            matrix[edges.getFrom(e) - 1][edges.getTo(e) - 1] += (int) edges.getCapacity(e);
+        return matrix;
+    }
+
+    public int getNumberOfVertices() {
+        return numberOfVertices;
+    }
+
+    public int getNumberOfEdges() {
+        return edges.size();
+    }
+
+    public int getSource() {
+        return source;
+    }
+
+    public int getSink() {
+        return sink;
+    }
+
+    public EdgeList getEdges() {
+        return edges;
+    }
+}
@@ -0,0 +1,201 @@
+package flow.benchmark;
+
+import flow.flownetwork.EdgeList;
+
+import java.util.Random;
+
+/**
+ * Seeded generators of benchmark instances. Vertices are numbered 1..n, with the source 1 and the sink n
+ * unless stated otherwise. Every shape has three scales, SMALL and MEDIUM stay below about 4000 vertices so
+ * they can also be built from a dense matrix.
+ */
+public class NetworkGenerator {
+
+    public enum Shape { SPARSE, DENSE, GRID, AK, GENRMF, UNIT, WIDE, MATCHING, COSTS }
+
+    public enum Scale { SMALL, MEDIUM, LARGE }
+
+    public static GeneratedNetwork generate(Shape shape, Scale scale, long seed) {
+        Random random = new Random(seed);
+        int step = scale.ordinal();
+        switch (shape) {
+            case SPARSE:
+                return sparse(new int[] { 500, 4000, 100000 }[step], 8, random);
+            case DENSE:
+                return dense(new int[] { 200, 1000, 3000 }[step], 0.5, random);
+            case GRID:
+                return grid(new int[] { 10, 40, 200 }[step], new int[] { 20, 100, 500 }[step], random);
+            case AK:
+                return ak(new int[] { 100, 1000, 20000 }[step]);
+            case GENRMF:
+                return genrmf(new int[] { 5, 10, 30 }[step], new int[] { 10, 40, 100 }[step], 1, 100, random);
+            case UNIT:
+                return sparse(new int[] { 500, 4000, 100000 }[step], 8, 1, 0, random);
+            case WIDE:
+                return sparse(new int[] { 500, 4000, 100000 }[step], 8, 1000000, 0, random);
+            case MATCHING:
+                return matching(new int[] { 100, 2000, 10000 }[step], 4, random);
+            case COSTS:
+                return sparse(new int[] { 500, 4000, 100000 }[step], 8, 1000, 100, random);
+            default:
+                throw new IllegalArgumentException("Unknown shape " + shape);
+        }
+    }
+
+    /**
+     * Random sparse network, every vertex has the given number of out edges to random vertices,
+     * the source four times as many. Capacities are uniform in 1..1000.
+     */
+    public static GeneratedNetwork sparse(int n, int degree, Random random) {
+        return sparse(n, degree, 1000, 0, random);
+    }
+
+    /**
+     * Random sparse network as above, with capacities uniform in 1..maximumCapacity, so 1 gives unit capacities and
+     * 1000000 a capacity range wide enough for the planner to choose Dinic's algorithm. With a maximum cost above 0
+     * every edge also gets a cost uniform in 1..maximumCost.
+     */
+    public static GeneratedNetwork sparse(int n, int degree, int maximumCapacity, int maximumCost, Random random) {
+        EdgeList edges = new EdgeList(n * degree + 3 * degree);
+        for (int u = 1; u < n; u++) {
+            for (int d = 0; d < (u == 1 ? 4 * degree : degree); d++) {
+                int v = 2 + random.nextInt(n - 1);
+                if (v == u) continue;
+                int capacity = 1 + random.nextInt(maximumCapacity);
+                if (maximumCost > 0) edges.addEdge(u, v, capacity, 1 + random.nextInt(maximumCost));
+                else edges.addEdge(u, v, capacity);
+            }
+        }
+        return new GeneratedNetwork(n, 1, n, edges);
+    }
+
+    /**
+     * Random dense network, every ordered pair is an edge with the given probability.
+     * Capacities are uniform in 1..1000.
+     */
+    public static GeneratedNetwork dense(int n, double density, Random random) {
+        EdgeList edges = new EdgeList((int) (n * (long) n * density));
+        for (int u = 1; u <= n; u++) {
+            for (int v = 1; v <= n; v++) {
+                if (u != v && random.nextDouble() < density) edges.addEdge(u, v, 1 + random.nextInt(1000));
+            }
+        }
+        return new GeneratedNetwork(n, 1, n, edges);
+    }
+
+    /**
+     * Unit capacity bipartite matching of k left and k right vertices, as HopcroftKarp takes it: the source 1 feeds
+     * the left vertices 2..k+1, every left vertex has the given number of edges to random distinct right vertices
+     * k+2..2k+1, and the right vertices drain into the sink 2k+2.
+     */
+    public static GeneratedNetwork matching(int k, int degree, Random random) {
+        int n = 2 * k + 2;
+        EdgeList edges = new EdgeList(k * (degree + 2));
+        int[] right = new int[degree];
+        for (int i = 0; i < k; i++) {
+            edges.addEdge(1, 2 + i, 1);
+            edges.addEdge(2 + k + i, n, 1);
+            for (int d = 0; d < degree; d++) {
+                right[d] = 2 + k + random.nextInt(k);
+                for (int e = 0; e < d; e++)
+                    if (right[e] == right[d]) {
+                        right[d] = 2 + k + random.nextInt(k);
+                        e = -1;
+                    }
+                edges.addEdge(2 + i, right[d], 1);
+            }
+        }
+        return new GeneratedNetwork(n, 1, n, edges);
+    }
+
+    /**
+     * Layered grid, layers of the given width where every vertex feeds its three closest vertices in the next
+     * layer (wrapping around). The source feeds the first layer and the last layer drains into the sink.
+     */
+    public static GeneratedNetwork grid(int width, int layers, Random random) {
+        int n = width * layers + 2;
+        int sink = n;
+        EdgeList edges = new EdgeList(3 * width * layers + 2 * width);
+        for (int i = 0; i < width; i++) {
+            edges.addEdge(1, vertex(0, i, width), 100 * 3);
+            edges.addEdge(vertex(layers - 1, i, width), sink, 100 * 3);
+        }
+        for (int layer = 0; layer + 1 < layers; layer++) {
+            for (int i = 0; i < width; i++) {
+                for (int d = -1; d <= 1; d++)
+                    edges.addEdge(vertex(layer, i, width), vertex(layer + 1, Math.floorMod(i + d, width), width),
+                                  1 + random.nextInt(100));
+            }
+        }
+        return new GeneratedNetwork(n, 1, sink, edges);
+    }
+
+    private static int vertex(int layer, int i, int width) {
+        return 2 + layer * width + i;
+    }
+
+    /**
+     * Network in the spirit of the AK generator of Cherkassky and Goldberg, hard for both families of engines.
+     * The first part is a chain of k vertices dropping one unit into the sink at every step, which makes
+     * push-relabel walk the excess down the whole chain. The second part offers k unit paths of growing length,
+     * so augmenting path methods and Dinic need one round per path.
+     */
+    public static GeneratedNetwork ak(int k) {
+        int n = 3 * k + 2;
+        int source = 1, sink = n;
+        EdgeList edges = new EdgeList(6 * k);
+
+        int chain = 2;
+        edges.addEdge(source, chain, k);
+        for (int i = 0; i < k; i++) {
+            if (i + 1 < k) edges.addEdge(chain + i, chain + i + 1, k);
+            edges.addEdge(chain + i, sink, 1);
+        }
+
+        int ladder = chain + k, back = ladder + k;
+        edges.addEdge(source, ladder, k);
+        for (int i = 0; i < k; i++) {
+            if (i + 1 < k) edges.addEdge(ladder + i, ladder + i + 1, k);
+            edges.addEdge(ladder + i, back + i, 1);
+            if (i > 0) edges.addEdge(back + i, back + i - 1, k);
+        }
+        edges.addEdge(back, sink, k);
+        return new GeneratedNetwork(n, source, sink, edges);
+    }
+
+    /**
+     * GENRMF network of Goldfarb and Grigoriadis: b frames of a x a grids. Grid edges between neighbours of a
+     * frame have capacity c2 * a * a, and every vertex has one edge to a random permutation of the next frame with
+     * capacity uniform in c1..c2. The source is the first vertex of the first frame, the sink the last of the last.
+     */
+    public static GeneratedNetwork genrmf(int a, int b, int c1, int c2, Random random) {
+        int frame = a * a;
+        int n = frame * b;
+        EdgeList edges = new EdgeList(5 * n);
+        int[] permutation = new int[frame];
+
+        for (int f = 0; f < b; f++) {
+            for (int x = 0; x < a; x++) {
+                for (int y = 0; y < a; y++) {
+                    int u = 1 + f * frame + x * a + y;
+                    if (x > 0) edges.addEdge(u, u - a, c2 * frame);
+                    if (x + 1 < a) edges.addEdge(u, u + a, c2 * frame);
+                    if (y > 0) edges.addEdge(u, u - 1, c2 * frame);
+                    if (y + 1 < a) edges.addEdge(u, u + 1, c2 * frame);
+                }
+            }
+            if (f + 1 == b) continue;
+
+            for (int i = 0; i < frame; i++) permutation[i] = i;
+            for (int i = frame - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int swap = permutation[i];
+                permutation[i] = permutation[j];
+                permutation[j] = swap;
+            }
+            for (int i = 0; i < frame; i++)
+                edges.addEdge(1 + f * frame + i, 1 + (f + 1) * frame + permutation[i], c1 + random.nextInt(c2 - c1 + 1));
+        }
+        return new GeneratedNetwork(n, 1, n, edges);
+    }
+}
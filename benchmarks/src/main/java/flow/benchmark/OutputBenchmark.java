@@ -0,0 +1,77 @@
+package flow.benchmark;
+
+import flow.Dinic;
+import flow.FlowSolution;
+import flow.benchmark.NetworkGenerator.Scale;
+import flow.benchmark.NetworkGenerator.Shape;
+import flow.io.SolutionWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing a solution, solved once per trial: the streaming writer in dense and sparse mode against
+ * FlowSolution.toString. Dense output is n x n, so only the scales with a dense matrix are measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class OutputBenchmark {
+    @Param({ "SPARSE", "DENSE", "GRID", "AK", "GENRMF" })
+    public Shape shape;
+
+    @Param({ "SMALL", "MEDIUM" })
+    public Scale scale;
+
+    @Param({ "42" })
+    public long seed;
+
+    private FlowSolution solution;
+    private Path output;
+
+    @Setup(Level.Trial)
+    public void solve() throws IOException {
+        solution = new Dinic().search(NetworkGenerator.generate(shape, scale, seed).compressed());
+        output = Files.createTempFile("flow", ".out");
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        Files.deleteIfExists(output);
+    }
+
+    @Benchmark
+    public Path writeDense() throws IOException {
+        SolutionWriter.write(solution, output, false);
+        return output;
+    }
+
+    @Benchmark
+    public Path writeSparse() throws IOException {
+        SolutionWriter.write(solution, output, true);
+        return output;
+    }
+
+    @Benchmark
+    public String toText() {
+        return solution.toString();
+    }
+}
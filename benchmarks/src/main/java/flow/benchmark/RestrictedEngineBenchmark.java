@@ -0,0 +1,122 @@
+package flow.benchmark;
+
+import flow.FlowSolution;
+import flow.Planner.Engine;
+import flow.Planner.Search;
+import flow.benchmark.NetworkGenerator.Scale;
+import flow.benchmark.NetworkGenerator.Shape;
+import flow.flownetwork.CompressedResidualGraph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Solve time of the engines which only take some graphs, next to the general engines on the same instances:
+ * HopcroftKarp on matchings, the dense engine where the n by n arrays fit, and minimum cost flow on sparse graphs
+ * with costs. As in SolveBenchmark the flow is reset before each solve.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RestrictedEngineBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Matching {
+        @Param({ "EDMOND_KARP", "DINIC", "PUSH_RELABEL", "MATCHING" })
+        public Engine engine;
+
+        @Param({ "SMALL", "MEDIUM", "LARGE" })
+        public Scale scale;
+
+        @Param({ "42" })
+        public long seed;
+
+        CompressedResidualGraph graph;
+
+        @Setup(Level.Trial)
+        public void generate() {
+            graph = NetworkGenerator.generate(Shape.MATCHING, scale, seed).compressed();
+        }
+
+        @Setup(Level.Invocation)
+        public void resetFlow() {
+            graph.resetFlow();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Dense {
+        @Param({ "EDMOND_KARP", "PUSH_RELABEL", "DENSE" })
+        public Engine engine;
+
+        @Param({ "SMALL", "MEDIUM" })
+        public Scale scale;
+
+        @Param({ "42" })
+        public long seed;
+
+        CompressedResidualGraph graph;
+
+        @Setup(Level.Trial)
+        public void generate() {
+            graph = NetworkGenerator.generate(Shape.DENSE, scale, seed).compressed();
+        }
+
+        @Setup(Level.Invocation)
+        public void resetFlow() {
+            graph.resetFlow();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Costs {
+        @Param({ "PUSH_RELABEL", "MINIMUM_COST" })
+        public Engine engine;
+
+        @Param({ "SMALL", "MEDIUM" })
+        public Scale scale;
+
+        @Param({ "42" })
+        public long seed;
+
+        CompressedResidualGraph graph;
+
+        @Setup(Level.Trial)
+        public void generate() {
+            graph = NetworkGenerator.generate(Shape.COSTS, scale, seed).compressed();
+        }
+
+        @Setup(Level.Invocation)
+        public void resetFlow() {
+            graph.resetFlow();
+        }
+    }
+
+    @Benchmark
+    public FlowSolution matching(Matching instance) {
+        return instance.engine.create(Search.BREADTH_FIRST).search(instance.graph);
+    }
+
+    @Benchmark
+    public FlowSolution dense(Dense instance) {
+        return instance.engine.create(Search.BREADTH_FIRST).search(instance.graph);
+    }
+
+    @Benchmark
+    public FlowSolution costs(Costs instance) {
+        return instance.engine.create(Search.BREADTH_FIRST).search(instance.graph);
+    }
+}
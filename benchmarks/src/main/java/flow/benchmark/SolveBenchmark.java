@@ -0,0 +1,68 @@
+package flow.benchmark;
+
+import flow.FlowSolution;
+import flow.Planner.Engine;
+import flow.Planner.Search;
+import flow.benchmark.NetworkGenerator.Scale;
+import flow.benchmark.NetworkGenerator.Shape;
+import flow.flownetwork.CompressedResidualGraph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Solve time of every engine taking any graph on the generated instances. EdmondKarp and capacity scaling search
+ * breadth first as the planner has them, -p search=DEPTH_FIRST compares the other search, the engines which do not
+ * search paths ignore it. RestrictedEngineBenchmark has the engines which only take some graphs.
+ * The graph is built once per trial and its flow is reset before each solve, so only the engine is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SolveBenchmark {
+    @Param({ "EDMOND_KARP", "CAPACITY_SCALING", "DINIC", "PUSH_RELABEL", "PARALLEL_PUSH_RELABEL" })
+    public Engine engine;
+
+    @Param({ "BREADTH_FIRST" })
+    public Search search;
+
+    @Param({ "SPARSE", "DENSE", "GRID", "AK", "GENRMF", "UNIT", "WIDE", "MATCHING" })
+    public Shape shape;
+
+    @Param({ "SMALL", "MEDIUM", "LARGE" })
+    public Scale scale;
+
+    @Param({ "42" })
+    public long seed;
+
+    private CompressedResidualGraph graph;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        graph = NetworkGenerator.generate(shape, scale, seed).compressed();
+    }
+
+    @Setup(Level.Invocation)
+    public void resetFlow() {
+        graph.resetFlow();
+    }
+
+    @Benchmark
+    public FlowSolution solve() {
+        return engine.create(search).search(graph);
+    }
+}
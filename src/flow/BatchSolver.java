@@ -0,0 +1,236 @@
+package flow;
+
+import flow.flownetwork.CompressedResidualGraph;
+import flow.io.GraphReader;
+import flow.io.SolutionWriter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Solves many instances in one JVM. Reading and writing run on an I/O pool, solving on a fixed pool of one
+ * thread per core, and each instance gets a FlowAlgorithm of its own so no search state is shared.
+ * At most two instances per solver thread are in flight, which bounds the memory held by parsed graphs.
+ * Each solution is written as soon as it is found, next to the others in the output directory.
+ * With a cache, instances with the same content as an earlier one are not solved again.
+ * With a planner, each instance gets the algorithm planned from its statistics, the plan is logged to stderr
+ * when verbose.
+ */
+public class BatchSolver {
+    private Supplier<FlowAlgorithm> algorithms;
+    private int solverThreads;
+    private int ioThreads;
+    private boolean sparse;
+    private SolutionCache cache;
+    private Planner planner;
+    private boolean reduce;
+    private boolean verbose;
+
+    public BatchSolver(Supplier<FlowAlgorithm> algorithms, int solverThreads, int ioThreads, boolean sparse) {
+        this.algorithms = algorithms;
+        this.solverThreads = solverThreads;
+        this.ioThreads = ioThreads;
+        this.sparse = sparse;
+    }
+
+    /**
+     * @param cache - shared by every instance of the batch, null to solve every instance.
+     */
+    public void setCache(SolutionCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * @param planner - plans the algorithm of every instance, null to use the algorithms given.
+     */
+    public void setPlanner(Planner planner) {
+        this.planner = planner;
+    }
+
+    /**
+     * @param reduce - solve a reduced copy of every instance, see FlowSolver.setReduction.
+     */
+    public void setReduction(boolean reduce) {
+        this.reduce = reduce;
+    }
+
+    /**
+     * @param verbose - log the plan of every instance to stderr.
+     */
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+
+    /**
+     * List the inputs of a batch, either every regular file in a directory or the paths in a manifest,
+     * one per line, relative to the manifest. Blank lines and lines starting with '#' are skipped.
+     * @param batch - a directory or a manifest file.
+     * @return the input files, sorted for a directory and in manifest order otherwise.
+     */
+    public static List<Path> inputs(Path batch) throws IOException {
+        if (Files.isDirectory(batch)) {
+            try (Stream<Path> files = Files.list(batch)) {
+                return files.filter(Files::isRegularFile)
+                            .sorted()
+                            .collect(Collectors.toList());
+            }
+        }
+        return Files.readAllLines(batch).stream()
+                                       .map(String::trim)
+                                       .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                                       .map(line -> batch.toAbsolutePath().getParent().resolve(line))
+                                       .collect(Collectors.toList());
+    }
+
+    /**
+     * @param input - the input file.
+     * @param outputDirectory - the directory the solution goes to.
+     * @return the output file, named after the input as in tests/: test5.txt gives test5-out.txt.
+     */
+    public static Path outputOf(Path input, Path outputDirectory) {
+        String name = input.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return outputDirectory.resolve((dot > 0 ? name.substring(0, dot) : name) + "-out.txt");
+    }
+
+    /**
+     * Solve every input, writing each solution to the output directory.
+     * An instance which fails is reported and counted, the others go on.
+     * @return the statistics of the batch.
+     */
+    public Report solve(List<Path> inputs, Path outputDirectory) throws IOException, InterruptedException {
+        Files.createDirectories(outputDirectory);
+        ExecutorService io = Executors.newFixedThreadPool(ioThreads);
+        ExecutorService solvers = Executors.newFixedThreadPool(solverThreads);
+        Semaphore inFlight = new Semaphore(2 * solverThreads);
+        Report report = new Report();
+        long start = System.nanoTime();
+
+        try {
+            List<CompletableFuture<Void>> jobs = new ArrayList<>();
+            for (Path input : inputs) {
+                inFlight.acquire();
+                CompletableFuture<Void> job = CompletableFuture.supplyAsync(() -> read(input), io)
+                        .thenApplyAsync(graph -> solve(input, graph, report), solvers)
+                        .thenAcceptAsync(solution -> write(solution, outputOf(input, outputDirectory)), io)
+                        .handle((ignored, failure) -> {
+                            if (failure == null) {
+                                report.solved.incrementAndGet();
+                            } else {
+                                report.failed.incrementAndGet();
+                                Throwable cause = failure.getCause() != null ? failure.getCause() : failure;
+                                if (cause instanceof UncheckedIOException) cause = cause.getCause();
+                                System.err.println(input + ": " + cause);
+                            }
+                            inFlight.release();
+                            return null;
+                        });
+                jobs.add(job);
+            }
+            CompletableFuture.allOf(jobs.toArray(new CompletableFuture<?>[0])).join();
+        } finally {
+            io.shutdown();
+            solvers.shutdown();
+        }
+        report.nanoseconds = System.nanoTime() - start;
+        return report;
+    }
+
+    private static CompressedResidualGraph read(Path input) {
+        try {
+            return GraphReader.read(input);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static GraphReader.Format format(Path input) {
+        try {
+            return GraphReader.detect(input);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private FlowSolution solve(Path input, CompressedResidualGraph graph, Report report) {
+        long start = System.nanoTime();
+        FlowAlgorithm algorithm = algorithms.get();
+        if (planner != null) {
+            Planner.Plan plan = planner.plan(graph, format(input));
+            if (verbose) System.err.println(input + ": " + plan);
+            algorithm = plan.create();
+        }
+        FlowSolver solver = new FlowSolver(graph, algorithm);
+        solver.setCache(cache);
+        solver.setReduction(reduce);
+        FlowSolution solution = solver.result();
+        report.solveNanoseconds.addAndGet(System.nanoTime() - start);
+        report.arcs.addAndGet(graph.getNumberOfArcs());
+        return solution;
+    }
+
+    private void write(FlowSolution solution, Path output) {
+        try {
+            SolutionWriter.write(solution, output, sparse);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Aggregate statistics of a batch, the counters may be read while it runs.
+     */
+    public static class Report {
+        private AtomicInteger solved = new AtomicInteger();
+        private AtomicInteger failed = new AtomicInteger();
+        private AtomicLong arcs = new AtomicLong();
+        private AtomicLong solveNanoseconds = new AtomicLong();
+        private long nanoseconds;
+
+        public int getSolved() {
+            return solved.get();
+        }
+
+        public int getFailed() {
+            return failed.get();
+        }
+
+        public long getArcs() {
+            return arcs.get();
+        }
+
+        /**
+         * @return wall time of the whole batch in milliseconds.
+         */
+        public double getMilliseconds() {
+            return nanoseconds / 1e6;
+        }
+
+        /**
+         * @return solved instances per second of wall time.
+         */
+        public double getThroughput() {
+            return nanoseconds == 0 ? 0 : solved.get() / (nanoseconds / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Solved %d, failed %d instances (%d arcs) in %.1f ms, %.1f instances/s, %.1f ms solving",
+                                 getSolved(), getFailed(), getArcs(), getMilliseconds(), getThroughput(),
+                                 solveNanoseconds.get() / 1e6);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package flow;
+
+import flow.flownetwork.CompressedResidualGraph;
+import flow.flownetwork.DenseResidualGraph;
+import flow.flownetwork.FlowGraph;
+import flow.metrics.Metrics;
+import flow.metrics.Metrics.Counter;
+
+import java.util.Arrays;
+
+/**
+ * Edmonds-Karp on a DenseResidualGraph, for graphs where most pairs of vertices have an edge. Each breadth first
+ * search keeps the unvisited vertices in a bitset, and expands a vertex by and-ing its residual rows with it a
+ * word at a time in a loop without branches, before taking the new vertices out of the words found non zero.
+ * Vertices are reached in the order BreadthFirst reaches them on a CompressedResidualGraph of a matrix, edges with
+ * capacity left before edges whose flow can be pushed back, each by increasing vertex, so the same paths are
+ * augmented and the solution is the one EdmondKarp finds. The number of steps reported is the number of
+ * augmentations, and the arcs scanned are the matrix entries covered by the rows scanned.
+ */
+public class DenseMaximumFlow implements FlowAlgorithm {
+    private int[] parent;
+    private boolean[] pushedBack;
+    private int[] queue;
+    private long[] unvisited;
+    private long[] found;
+    private long searches;
+    private long arcsScanned;
+
+    @Override
+    public FlowSolution search(FlowGraph graph) {
+        CompressedResidualGraph residualGraph = new CompressedResidualGraph();
+        residualGraph.createGraph(graph);
+        return search(residualGraph);
+    }
+
+    /**
+     * Solve a dense copy of the graph, and write its flow back into the graph.
+     */
+    @Override
+    public FlowSolution search(CompressedResidualGraph graph, Metrics metrics) {
+        return search(graph, metrics, SolveControl.NONE);
+    }
+
+    /**
+     * Solve as above, checking the control before every search.
+     */
+    @Override
+    public FlowSolution search(CompressedResidualGraph graph, Metrics metrics, SolveControl control) {
+        DenseResidualGraph dense = new DenseResidualGraph();
+        dense.createGraph(graph);
+        FlowSolution solution = new FlowSolution(graph);
+        control.watch(graph, graph.getSource(), graph.getSink());
+        solution.setNumberOfSteps(augment(dense, metrics, control));
+        dense.writeFlow(graph);
+        solution.setMaximumFlow(graph.getFlowValue());
+        solution.setSourceCut(graph.getSourceCut());
+        solution.setMetrics(metrics);
+        control.finish(solution);
+        return solution;
+    }
+
+    /**
+     * Solve the dense graph in place, as read from a matrix without a compressed graph.
+     */
+    public FlowSolution search(DenseResidualGraph graph, Metrics metrics) {
+        return search(graph, metrics, SolveControl.NONE);
+    }
+
+    /**
+     * Solve the dense graph in place, checking the control before every search. The control can not bound a
+     * dense graph, see SolveControl.
+     */
+    public FlowSolution search(DenseResidualGraph graph, Metrics metrics, SolveControl control) {
+        FlowSolution solution = new FlowSolution(graph);
+        solution.setNumberOfSteps(augment(graph, metrics, control));
+        solution.setMaximumFlow(graph.getFlowValue());
+        solution.setSourceCut(graph.getSourceCut());
+        solution.setMetrics(metrics);
+        control.finish(solution);
+        return solution;
+    }
+
+    private int augment(DenseResidualGraph graph, Metrics metrics, SolveControl control) {
+        int size = graph.size(), source = graph.getSource(), sink = graph.getSink();
+        parent = new int[size];
+        pushedBack = new boolean[size];
+        queue = new int[size];
+        unvisited = new long[graph.words()];
+        found = new long[graph.words()];
+        searches = arcsScanned = 0;
+
+        long flow = control == SolveControl.NONE ? 0 : graph.getFlowValue();
+        int augmentations = 0;
+        while (!control.shouldStop(flow) && findPath(graph, source, sink)) {
+            long minimum = Long.MAX_VALUE;
+            for (int v = sink; v != source; v = parent[v])
+                minimum = Math.min(pushedBack[v] ? graph.getFlow(v, parent[v]) : graph.residualFlow(parent[v], v), minimum);
+            for (int v = sink; v != source; v = parent[v]) {
+                if (pushedBack[v]) graph.augment(v, parent[v], -minimum);
+                else graph.augment(parent[v], v, minimum);
+            }
+            flow += minimum;
+            augmentations++;
+        }
+
+        metrics.add(Counter.AUGMENTATIONS, augmentations);
+        metrics.add(Counter.SEARCHES, searches);
+        metrics.add(Counter.ARCS_SCANNED, arcsScanned);
+        return augmentations;
+    }
+
+    /**
+     * Breadth first search from the source, stopped as soon as the sink is reached.
+     * @return true - if the sink was reached, with the path in the parent array, else false.
+     */
+    private boolean findPath(DenseResidualGraph graph, int source, int sink) {
+        searches++;
+        Arrays.fill(unvisited, -1L);
+        unvisited[source >>> 6] &= ~(1L << source);
+        int first = 0, last = 0;
+        queue[last++] = source;
+
+        while (first < last) {
+            int current = queue[first++];
+            arcsScanned += 2L * graph.size();
+            last = expand(graph.getForwardBits(), graph.words(), current, false, sink, last);
+            if (last < 0) return true;
+            last = expand(graph.getBackwardBits(), graph.words(), current, true, sink, last);
+            if (last < 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Visit the unvisited vertices set in the row of the current vertex, by increasing vertex.
+     * @return the new end of the queue, -1 if the sink was reached.
+     */
+    private int expand(long[] rows, int words, int current, boolean back, int sink, int last) {
+        int base = current * words;
+        for (int w = 0; w < words; w++)
+            found[w] = rows[base + w] & unvisited[w];
+        for (int w = 0; w < words; w++) {
+            long next = found[w];
+            if (next == 0) continue;
+            unvisited[w] &= ~next;
+            for (; next != 0; next &= next - 1) {
+                int vertex = (w << 6) + Long.numberOfTrailingZeros(next);
+                parent[vertex] = current;
+                pushedBack[vertex] = back;
+                if (vertex == sink) return -1;
+                queue[last++] = vertex;
+            }
+        }
+        return last;
+    }
+}
@@ -0,0 +1,52 @@
+package flow;
+
+import flow.flownetwork.CompressedResidualGraph;
+import flow.flownetwork.FlowGraph;
+import flow.flownetwork.LevelGraph;
+import flow.metrics.Metrics;
+import flow.metrics.Metrics.Counter;
+
+/**
+ * Dinic's algorithm. Each phase builds a BFS level graph and saturates it with a blocking flow,
+ * so at most O(V) phases are needed. The number of steps reported is the number of phases.
+ */
+public class Dinic implements FlowAlgorithm {
+
+    @Override
+    public FlowSolution search(FlowGraph graph) {
+        CompressedResidualGraph residualGraph = new CompressedResidualGraph();
+        residualGraph.createGraph(graph);
+        return search(residualGraph);
+    }
+
+    @Override
+    public FlowSolution search(CompressedResidualGraph graph, Metrics metrics) {
+        return search(graph, metrics, SolveControl.NONE);
+    }
+
+    /**
+     * Solve the graph, checking the control before every phase.
+     */
+    @Override
+    public FlowSolution search(CompressedResidualGraph graph, Metrics metrics, SolveControl control) {
+        FlowSolution solution = new FlowSolution(graph);
+        LevelGraph levelGraph = new LevelGraph(graph);
+        long flow = control == SolveControl.NONE ? 0 : graph.getFlowValue();
+        control.watch(graph, graph.getSource(), graph.getSink());
+
+        while(!control.shouldStop(flow) && levelGraph.createLevels()) {
+            flow += levelGraph.blockingFlow();
+            solution.setNumberOfSteps(solution.getNumberOfSteps()+1);
+        }
+
+        metrics.add(Counter.PHASES, solution.getNumberOfSteps());
+        metrics.add(Counter.AUGMENTATIONS, levelGraph.getAugmentations());
+        metrics.add(Counter.SEARCHES, levelGraph.getSearches());
+        metrics.add(Counter.ARCS_SCANNED, levelGraph.getArcsScanned());
+        solution.setMaximumFlow(graph.getFlowValue());
+        solution.setSourceCut(graph.getSourceCut());
+        solution.setMetrics(metrics);
+        control.finish(solution);
+        return solution;
+    }
+}
@@ -1,14 +1,11 @@
 package flow;
 
-import flow.datastructure.graph.FlowNetworkEdge;
-import flow.datastructure.graph.Vertex;
+import flow.flownetwork.CompressedResidualGraph;
 import flow.flownetwork.FlowGraph;
+import flow.metrics.Metrics;
+import flow.metrics.Metrics.Counter;
 import flow.searchalgorithm.SearchAlgorithm;
-
-import java.util.List;
-import java.util.stream.Collectors;
-
-import static java.util.Comparator.comparing;
+import flow.searchalgorithm.SearchState;
 
 /**
  * Created by chrisat on 28.10.16.
@@ -16,46 +13,103 @@ import static java.util.Comparator.comparing;
 public class EdmondKarp implements FlowAlgorithm{
     SearchAlgorithm pathFinder;
 
-    EdmondKarp(SearchAlgorithm pathFinder) {
+    public EdmondKarp(SearchAlgorithm pathFinder) {
         this.pathFinder = pathFinder;
     }
 
-    public List<FlowNetworkEdge> augmentPath(FlowGraph graph, Vertex source, Vertex sink) {
-        return pathFinder.findPath(graph, source, sink, true);
+    @Override
+    public String getKind() {
+        return getClass().getSimpleName() + "-" + pathFinder.getClass().getSimpleName();
     }
+
+    public int augmentPath(CompressedResidualGraph graph, int source, int sink, SearchState state) {
+        return pathFinder.findPath(graph, source, sink, state);
+    }
+
     @Override
     public FlowSolution search(FlowGraph graph) {
-        return calc(graph, graph.getSource(), graph.getSink());
+        CompressedResidualGraph residualGraph = new CompressedResidualGraph();
+        residualGraph.createGraph(graph);
+        return search(residualGraph);
     }
 
-    public FlowSolution calc(FlowGraph graph, Vertex source, Vertex sink) {
+    @Override
+    public FlowSolution search(CompressedResidualGraph graph, Metrics metrics) {
+        return calc(graph, graph.getSource(), graph.getSink(), metrics);
+    }
+
+    @Override
+    public FlowSolution search(CompressedResidualGraph graph, Metrics metrics, SolveControl control) {
+        return calc(graph, graph.getSource(), graph.getSink(), metrics, control);
+    }
+
+    public FlowSolution calc(CompressedResidualGraph graph, int source, int sink) {
+        return calc(graph, source, sink, Metrics.DISABLED);
+    }
+
+    /**
+     * Augment along the paths found by the path finder until the sink can no longer be reached.
+     * The search state is allocated once, so each augmentation costs one search plus O(path length).
+     * Source and sink may be any two vertices, the flow value and cut are taken from the source.
+     */
+    public FlowSolution calc(CompressedResidualGraph graph, int source, int sink, Metrics metrics) {
+        return calc(graph, source, sink, metrics, SolveControl.NONE);
+    }
+
+    /**
+     * Augment until the sink can no longer be reached or the control stops the solve.
+     */
+    public FlowSolution calc(CompressedResidualGraph graph, int source, int sink, Metrics metrics,
+                             SolveControl control) {
         FlowSolution solution = new FlowSolution(graph);
+        SearchState state = new SearchState(graph.size());
 
-        while(true) {
-            Integer minimum = Integer.MAX_VALUE;
-            List<FlowNetworkEdge> path = augmentPath(graph, source, sink);
-            if(path.isEmpty()) break;
-
-            for(FlowNetworkEdge edge : path)
-                minimum = Math.min(edge.residualFlow(), minimum);
-
-            Vertex vertex = sink;
-            while(vertex != source) {
-                for(FlowNetworkEdge edge : vertex.getInEdges()) {
-                    if(!path.contains(edge)) continue;
-                    edge.getFlowstatus().setFlow((Integer)edge.getFlow()+minimum);
-                    vertex = (Vertex) edge.getFrom();
-                }
-            }
-            solution.setNumberOfSteps(solution.getNumberOfSteps()+1);
-        }
+        control.watch(graph, source, sink);
+        augment(graph, source, sink, state, control);
+        // one search per augmentation, and the last one that found no path unless the solve was stopped
+        solution.setNumberOfSteps((int) (state.getSearches() - (control.getStatus() == FlowSolution.Status.MAXIMUM ? 1 : 0)));
 
-        solution.setMaximumFlow((Integer)source.getOutEdges().get(0).getFlow());
-        solution.setGraph(graph);
-        solution.setSourceCut(pathFinder.findPath(graph, source, sink, false).stream()
-                                                                             .map(edge -> (Vertex)edge.getTo())
-                                                                             .sorted(comparing(Vertex::getVertex))
-                                                                             .collect(Collectors.toList()));
+        metrics.add(Counter.AUGMENTATIONS, solution.getNumberOfSteps());
+        metrics.add(Counter.SEARCHES, state.getSearches());
+        metrics.add(Counter.ARCS_SCANNED, state.getArcsScanned());
+        solution.setMaximumFlow(graph.getFlowValue(source));
+        solution.setSourceCut(graph.getSourceCut(source));
+        solution.setMetrics(metrics);
+        control.finish(solution);
         return solution;
     }
+
+    /**
+     * Augment from source to sink until the sink can no longer be reached, working in the given state.
+     * Every search but the last one augments, the last one leaves the source side of a minimum cut visited.
+     * @return the flow added.
+     */
+    public long augment(CompressedResidualGraph graph, int source, int sink, SearchState state) {
+        return augment(graph, source, sink, state, SolveControl.NONE);
+    }
+
+    /**
+     * Augment as above, checking the control with the flow value of the source before every search.
+     * @return the flow added.
+     */
+    public long augment(CompressedResidualGraph graph, int source, int sink, SearchState state,
+                        SolveControl control) {
+        int[] path = state.getPath();
+        long start = control == SolveControl.NONE ? 0 : graph.getFlowValue(source);
+        long total = 0;
+
+        while(!control.shouldStop(start + total)) {
+            int length = augmentPath(graph, source, sink, state);
+            if(length < 0) break;
+
+            long minimum = Long.MAX_VALUE;
+            for(int i = 0; i < length; i++)
+                minimum = Math.min(graph.residualFlow(path[i]), minimum);
+
+            for(int i = 0; i < length; i++)
+                graph.augment(path[i], minimum);
+            total += minimum;
+        }
+        return total;
+    }
 }
@@ -1,6 +1,8 @@
 package flow;
 
+import flow.flownetwork.CompressedResidualGraph;
 import flow.flownetwork.FlowGraph;
+import flow.metrics.Metrics;
 
 /**
  * Created by chrisat on 28.10.16.
@@ -8,4 +10,44 @@ import flow.flownetwork.FlowGraph;
 public interface FlowAlgorithm {
     FlowSolution search(FlowGraph graph);
 
+    default FlowSolution search(CompressedResidualGraph graph) {
+        return search(graph, Metrics.DISABLED);
+    }
+
+    /**
+     * Solve the graph, adding the counters of the algorithm to the metrics once it is done.
+     * @param graph - the graph to solve, holding the flow afterwards.
+     * @param metrics - receives augmentations, searches, arcs scanned, pushes and relabels as they apply.
+     */
+    FlowSolution search(CompressedResidualGraph graph, Metrics metrics);
+
+    /**
+     * Solve the graph until the control stops it, see SolveControl. Algorithms without checks of their own only
+     * look at the control before they start, where a stop leaves the graph as it is, and report the value of the
+     * flow they found.
+     * @param control - the target, deadline, gap and cancellation of the solve.
+     */
+    default FlowSolution search(CompressedResidualGraph graph, Metrics metrics, SolveControl control) {
+        if (control.shouldStop(graph.getFlowValue())) {
+            control.watch(graph, graph.getSource(), graph.getSink());
+            FlowSolution solution = new FlowSolution(graph);
+            solution.setMaximumFlow(graph.getFlowValue());
+            solution.setSourceCut(graph.getSourceCut());
+            solution.setMetrics(metrics);
+            control.finish(solution);
+            return solution;
+        }
+        FlowSolution solution = search(graph, metrics);
+        control.report(solution.getMaximumFlow());
+        return solution;
+    }
+
+    /**
+     * @return the kind of solutions the algorithm finds, solutions of different kinds may differ in their flow,
+     *         steps or cost on the same graph, see SolutionCache.
+     */
+    default String getKind() {
+        return getClass().getSimpleName();
+    }
+
 }
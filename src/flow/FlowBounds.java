@@ -0,0 +1,48 @@
+package flow;
+
+import flow.datastructure.graph.Vertex;
+
+import java.util.List;
+
+/**
+ * Certified bounds on the maximum flow of a graph while it is being solved. The lower bound is the value of a flow
+ * found, the upper bound the capacity of an s-t cut, the maximum flow lies between them.
+ */
+public class FlowBounds {
+    private long lower;
+    private long upper;
+    private List<Vertex> cut;
+
+    FlowBounds(long lower, long upper, List<Vertex> cut) {
+        this.lower = lower;
+        this.upper = upper;
+        this.cut = cut;
+    }
+
+    public long getLower() {
+        return lower;
+    }
+
+    public long getUpper() {
+        return upper;
+    }
+
+    /**
+     * @return the source side of the cut giving the upper bound, except the source, sorted by id.
+     */
+    public List<Vertex> getCut() {
+        return cut;
+    }
+
+    /**
+     * @return the gap relative to the upper bound, 0 once the bounds meet.
+     */
+    public double getGap() {
+        return upper == 0 ? 0 : (double) (upper - lower) / upper;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Bounds: %d..%d, gap %.4f", lower, upper, getGap());
+    }
+}
@@ -0,0 +1,109 @@
+package flow;
+
+import flow.flownetwork.CompressedResidualGraph;
+import flow.searchalgorithm.BreadthFirst;
+import flow.searchalgorithm.SearchAlgorithm;
+import flow.searchalgorithm.SearchState;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Maximum flow between any two vertices of a graph built once. Each query resets the flow in O(E) and augments
+ * between the two vertices, so the arcs are never laid out again. The artificial source and sink stay in the graph,
+ * but with only arcs out of the one and into the other they carry no flow between two internal vertices.
+ * A batch of queries runs on worker threads, each with its own flow array over the arcs of the graph.
+ */
+public class FlowQueries {
+    private CompressedResidualGraph graph;
+    private EdmondKarp engine;
+    private SearchState state;
+    private int threads;
+
+    public FlowQueries(CompressedResidualGraph graph) {
+        this(graph, new BreadthFirst(), Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param graph - the graph queried, its flow is replaced by the flow of each single query.
+     * @param pathFinder - finds the augmenting paths, shared by the threads of a batch.
+     * @param threads - the most threads a batch runs on.
+     */
+    public FlowQueries(CompressedResidualGraph graph, SearchAlgorithm pathFinder, int threads) {
+        if (threads < 1) throw new IllegalArgumentException("At least one thread is needed");
+        this.graph = graph;
+        this.threads = threads;
+        engine = new EdmondKarp(pathFinder);
+        state = new SearchState(graph.size());
+    }
+
+    /**
+     * The maximum flow from s to t. The flow stays in the graph until the next query, with the side of s in a
+     * minimum cut given by graph.getSourceCut(s).
+     * @param s - the source, any vertex 0..n+1.
+     * @param t - the sink, any other vertex.
+     * @return the value of the maximum flow.
+     */
+    public long maxFlow(int s, int t) {
+        check(s, t);
+        graph.resetFlow();
+        return engine.augment(graph, s, t, state);
+    }
+
+    /**
+     * The maximum flow of every pair sources[i], sinks[i], computed in parallel. The flow of the graph itself is
+     * left untouched.
+     * @return the value of each maximum flow, in the order of the pairs.
+     */
+    public long[] maxFlows(int[] sources, int[] sinks) {
+        if (sources.length != sinks.length)
+            throw new IllegalArgumentException("Got " + sources.length + " sources for " + sinks.length + " sinks");
+        for (int i = 0; i < sources.length; i++) check(sources[i], sinks[i]);
+
+        long[] values = new long[sources.length];
+        int workers = Math.min(threads, sources.length);
+        if (workers == 0) return values;
+        AtomicInteger next = new AtomicInteger();
+        Runnable worker = () -> {
+            CompressedResidualGraph copy = graph.copyTopology();
+            SearchState own = new SearchState(copy.size());
+            for (int i = next.getAndIncrement(); i < values.length; i = next.getAndIncrement()) {
+                copy.resetFlow();
+                values[i] = engine.augment(copy, sources[i], sinks[i], own);
+            }
+        };
+        if (workers == 1) {
+            worker.run();
+            return values;
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<?>> running = new ArrayList<>();
+            for (int w = 0; w < workers; w++) running.add(pool.submit(worker));
+            for (Future<?> future : running) future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while answering the queries", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Worker failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return values;
+    }
+
+    private void check(int s, int t) {
+        if (s < 0 || s >= graph.size() || t < 0 || t >= graph.size() || s == t)
+            throw new IllegalArgumentException("Vertices " + s + " and " + t + " are not distinct vertices of the graph");
+    }
+
+    public CompressedResidualGraph getGraph() {
+        return graph;
+    }
+}
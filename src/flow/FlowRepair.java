@@ -0,0 +1,105 @@
+package flow;
+
+import flow.flownetwork.CompressedResidualGraph;
+import flow.searchalgorithm.SearchAlgorithm;
+import flow.searchalgorithm.SearchState;
+
+/**
+ * Restores flow conservation after capacities were lowered on a solved graph, so a FlowAlgorithm can continue
+ * from the flow that is left instead of starting over from zero.
+ * A vertex with a surplus sends it to the nearest vertex with a deficit, found by breadth first search, and
+ * settles both ends, so flow taken off a cycle goes back around it. Only when no deficit is reachable does the
+ * surplus go on to the sink, and only without a path to the sink back to the source.
+ * A deficit left after every surplus is settled is drawn from the source, or taken back from the sink.
+ */
+public class FlowRepair {
+    private SearchAlgorithm pathFinder;
+
+    /**
+     * @param pathFinder - finds the paths into the deficits left once every surplus is settled.
+     */
+    public FlowRepair(SearchAlgorithm pathFinder) {
+        this.pathFinder = pathFinder;
+    }
+
+    /**
+     * Route every imbalance of the graph along residual paths.
+     * @param graph - graph with imbalances left by CompressedResidualGraph.setCapacity.
+     * @return the number of augmentations used.
+     */
+    public int repair(CompressedResidualGraph graph) {
+        int steps = 0;
+        if (graph.isBalanced()) return steps;
+
+        SearchState state = new SearchState(graph.size());
+        int source = graph.getSource(), sink = graph.getSink();
+        for (int vertex = 1; vertex <= graph.getNumberOfVertices(); vertex++) {
+            while (graph.getImbalance(vertex) > 0) {
+                steps++;
+                int target = findTarget(graph, vertex, state);
+                if (target == -1)
+                    throw new IllegalStateException("No residual path to a deficit, the sink or the source from " + vertex);
+                long amount = graph.getImbalance(vertex);
+                if (target != source && target != sink) amount = Math.min(-graph.getImbalance(target), amount);
+                long pushed = push(graph, state.tracePath(graph, vertex, target), state, amount);
+                graph.settleImbalance(vertex, pushed);
+                if (target != source && target != sink) graph.settleImbalance(target, -pushed);
+            }
+        }
+        for (int vertex = 1; vertex <= graph.getNumberOfVertices(); vertex++) {
+            while (graph.getImbalance(vertex) < 0) {
+                steps++;
+                int length = pathFinder.findPath(graph, source, vertex, state);
+                if (length < 0) length = pathFinder.findPath(graph, sink, vertex, state);
+                if (length < 0)
+                    throw new IllegalStateException("No residual path from the source or the sink to " + vertex);
+                graph.settleImbalance(vertex, -push(graph, length, state, -graph.getImbalance(vertex)));
+            }
+        }
+        return steps;
+    }
+
+    /**
+     * Breadth first search over the residual arcs from a vertex with a surplus, stopping at the first vertex
+     * with a deficit. The path to the vertex returned is left in the parent arcs of the state.
+     * @return the nearest vertex with a deficit, else the sink, else the source, -1 if none can be reached.
+     */
+    private int findTarget(CompressedResidualGraph graph, int from, SearchState state) {
+        int[] queue = state.getQueue();
+        int first = 0, last = 0;
+
+        state.nextEpoch();
+        state.visit(from, -1);
+        queue[last++] = from;
+
+        while (first < last) {
+            int current = queue[first++];
+            state.scanned(graph.lastArc(current) - graph.firstArc(current));
+            for (int arc = graph.firstArc(current); arc < graph.lastArc(current); arc++) {
+                int vertex = graph.getHead(arc);
+                if (state.isVisited(vertex) || !state.isUsable(graph, arc)) continue;
+                state.visit(vertex, arc);
+                if (vertex >= 1 && vertex <= graph.getNumberOfVertices() && graph.getImbalance(vertex) < 0)
+                    return vertex;
+                queue[last++] = vertex;
+            }
+        }
+        if (state.isVisited(graph.getSink())) return graph.getSink();
+        if (state.isVisited(graph.getSource())) return graph.getSource();
+        return -1;
+    }
+
+    /**
+     * Push up to amount along the path left in the state.
+     * @return the amount pushed.
+     */
+    private long push(CompressedResidualGraph graph, int length, SearchState state, long amount) {
+        int[] path = state.getPath();
+        long minimum = amount;
+        for (int i = 0; i < length; i++)
+            minimum = Math.min(graph.residualFlow(path[i]), minimum);
+        for (int i = 0; i < length; i++)
+            graph.augment(path[i], minimum);
+        return minimum;
+    }
+}
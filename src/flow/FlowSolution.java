@@ -1,7 +1,8 @@
 package flow;
 
 import flow.datastructure.graph.Vertex;
-import flow.flownetwork.FlowGraph;
+import flow.flownetwork.FlowNetwork;
+import flow.metrics.Metrics;
 
 import java.util.List;
 
@@ -9,16 +10,34 @@ import java.util.List;
  * Created by chrisat on 28.10.16.
  */
 public class FlowSolution {
-    FlowGraph graph;
-    int maximumFlow;
+    /**
+     * Why the engine stopped, see SolveControl. Only a MAXIMUM solution carries a maximum flow and a minimum cut,
+     * the others are approximate and carry a valid flow of the value found so far, with the best cut found when the
+     * control bounded the flow, else the vertices the source still reaches.
+     */
+    public enum Status {
+        MAXIMUM,
+        TARGET_REACHED,
+        DEADLINE_PASSED,
+        GAP_REACHED,
+        CANCELLED
+    }
+
+    FlowNetwork graph;
+    long maximumFlow;
     int numberOfSteps;
     List<Vertex> sourceCut;
+    Metrics metrics = Metrics.DISABLED;
+    long totalCost;
+    boolean costed;
+    Status status = Status.MAXIMUM;
+    long upperBound = Long.MAX_VALUE;
 
-    FlowSolution(FlowGraph graph) {
+    FlowSolution(FlowNetwork graph) {
         this.graph = graph;
     }
 
-    public int getMaximumFlow() {
+    public long getMaximumFlow() {
         return maximumFlow;
     }
 
@@ -30,11 +49,55 @@ public class FlowSolution {
         return sourceCut;
     }
 
-    public FlowGraph getGraph() {
+    public FlowNetwork getGraph() {
         return graph;
     }
 
-    public void setMaximumFlow(int maximumFlow) {
+    /**
+     * @return the total cost of the flow, 0 unless a minimum cost algorithm solved the graph.
+     */
+    public long getTotalCost() {
+        return totalCost;
+    }
+
+    /**
+     * @return true - if the solution carries the total cost of its flow, else false.
+     */
+    public boolean hasTotalCost() {
+        return costed;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return true - if the flow is a maximum flow, else false as the engine was stopped early.
+     */
+    public boolean isMaximum() {
+        return status == Status.MAXIMUM;
+    }
+
+    /**
+     * @return true - if the engine was stopped early, so the flow value is only a lower bound, else false.
+     */
+    public boolean isApproximate() {
+        return !isMaximum();
+    }
+
+    /**
+     * @return the capacity of the source cut, an upper bound on the maximum flow, Long.MAX_VALUE for an approximate
+     *         solution which was not bounded.
+     */
+    public long getUpperBound() {
+        return isMaximum() ? maximumFlow : upperBound;
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    public void setMaximumFlow(long maximumFlow) {
         this.maximumFlow = maximumFlow;
     }
 
@@ -46,10 +109,27 @@ public class FlowSolution {
         this.sourceCut = sourceCut;
     }
 
-    public void setGraph(FlowGraph graph) {
+    public void setGraph(FlowNetwork graph) {
         this.graph = graph;
     }
 
+    public void setTotalCost(long totalCost) {
+        this.totalCost = totalCost;
+        costed = true;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public void setUpperBound(long upperBound) {
+        this.upperBound = upperBound;
+    }
+
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
     @Override
     public String toString() {
         return getMaximumFlow() + "\n"
@@ -57,6 +137,7 @@ public class FlowSolution {
                 + getSourceCut().toString().replace("[", "")
                                            .replace(", ", " ")
                                            .replace("]", "") + "\n"
-                + + getNumberOfSteps() + "\n";
+                + + getNumberOfSteps() + "\n"
+                + (hasTotalCost() ? getTotalCost() + "\n" : "");
     }
 }
@@ -1,6 +1,12 @@
 package flow;
 
+import flow.flownetwork.CompressedResidualGraph;
 import flow.flownetwork.ResidualGraph;
+import flow.metrics.Metrics;
+import flow.metrics.Metrics.Phase;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * Created by chrisat on 28.10.16.
@@ -8,7 +14,11 @@ import flow.flownetwork.ResidualGraph;
 public class FlowSolver {
     private FlowAlgorithm algorithm;
     private ResidualGraph residualGraph;
+    private CompressedResidualGraph compressedGraph;
     private int[][] graph;
+    private Metrics metrics = Metrics.DISABLED;
+    private boolean reduce;
+    private SolutionCache cache;
 
     public FlowSolver(ResidualGraph residualGraph, FlowAlgorithm algorithm, int[][] graph) {
         this.residualGraph = residualGraph;
@@ -16,8 +26,142 @@ public class FlowSolver {
         this.graph = graph;
     }
 
+    public FlowSolver(CompressedResidualGraph compressedGraph, FlowAlgorithm algorithm) {
+        this.compressedGraph = compressedGraph;
+        this.algorithm = algorithm;
+    }
+
+    /**
+     * @param metrics - receives the solve time and the counters of the algorithm.
+     */
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @param reduce - solve a reduced copy of the compressed graph and map the flow back, see GraphReduction.
+     */
+    public void setReduction(boolean reduce) {
+        this.reduce = reduce;
+    }
+
+    /**
+     * @param cache - looked up before solving the compressed graph, null to always solve.
+     */
+    public void setCache(SolutionCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Solve again after capacities of the compressed graph were changed, starting from the flow it still holds.
+     * Imbalances left by lowered capacities are routed away first, then the algorithm only augments
+     * what the changes made possible.
+     * @param repair - repairs the flow before solving.
+     */
+    public FlowSolution resolve(FlowRepair repair) {
+        return resolve(repair, SolveControl.NONE);
+    }
+
+    /**
+     * Solve again after capacities were changed, as resolve(repair), until the control stops the solve. The repair
+     * always runs to the end, the control only stops the algorithm.
+     */
+    public FlowSolution resolve(FlowRepair repair, SolveControl control) {
+        if (compressedGraph == null)
+            throw new IllegalStateException("Only a compressed residual graph can be solved again");
+        Metrics.Timer timer = metrics.start(Phase.SOLVE);
+        try {
+            repair.repair(compressedGraph);
+            return algorithm.search(compressedGraph, metrics, control);
+        } finally {
+            timer.close();
+        }
+    }
+
     public FlowSolution result() {
-        return algorithm.search(residualGraph);
+        return result(SolveControl.NONE);
+    }
+
+    /**
+     * Solve until the maximum flow is found or the control stops the solve, see SolveControl.
+     * Only the compressed graph is solved under the control, solutions stopped early are not cached.
+     */
+    public FlowSolution result(SolveControl control) {
+        if (compressedGraph != null && cache != null)
+            return cache.solve(compressedGraph, algorithm.getKind() + (reduce ? "-reduced" : ""), () -> solve(control));
+        return solve(control);
+    }
+
+    /**
+     * Solve on a thread of the default async pool of CompletableFuture.
+     */
+    public CompletableFuture<FlowSolution> resultAsync(SolveControl control) {
+        return resultAsync(control, null);
+    }
+
+    /**
+     * Solve on the executor under the control. Cancelling the future cancels the control, and a solve stopped by
+     * a cancellation cancels the future, any other stop completes it with the flow found so far.
+     * A solver solves one graph, so only one solve may run at a time.
+     * @param executor - runs the solve, null for the default async pool of CompletableFuture.
+     */
+    public CompletableFuture<FlowSolution> resultAsync(SolveControl control, Executor executor) {
+        CompletableFuture<FlowSolution> future = new CompletableFuture<>();
+        future.whenComplete((solution, failure) -> {
+            if (future.isCancelled() && control != SolveControl.NONE) control.cancel();
+        });
+        Runnable task = () -> {
+            if (future.isDone()) return;
+            if (control.isCancelled()) {
+                future.cancel(false);
+                return;
+            }
+            try {
+                FlowSolution solution = result(control);
+                if (solution.getStatus() == FlowSolution.Status.CANCELLED) future.cancel(false);
+                else future.complete(solution);
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        };
+        if (executor == null) CompletableFuture.runAsync(task);
+        else executor.execute(task);
+        return future;
+    }
+
+    private FlowSolution solve(SolveControl control) {
+        if (compressedGraph != null && reduce) return reducedResult(control);
+        Metrics.Timer timer = metrics.start(Phase.SOLVE);
+        try {
+            if (compressedGraph != null)
+                return algorithm.search(compressedGraph, metrics, control);
+            return algorithm.search(residualGraph);
+        } finally {
+            timer.close();
+        }
+    }
+
+    private FlowSolution reducedResult(SolveControl control) {
+        GraphReduction reduction;
+        Metrics.Timer reducing = metrics.start(Phase.REDUCTION);
+        try {
+            reduction = new GraphReduction(compressedGraph);
+        } finally {
+            reducing.close();
+        }
+        FlowSolution solution;
+        Metrics.Timer solving = metrics.start(Phase.SOLVE);
+        try {
+            solution = algorithm.search(reduction.getReducedGraph(), metrics, control);
+        } finally {
+            solving.close();
+        }
+        Metrics.Timer expanding = metrics.start(Phase.REDUCTION);
+        try {
+            return reduction.expand(solution);
+        } finally {
+            expanding.close();
+        }
     }
 
 }
@@ -1,54 +1,287 @@
 package flow;
 
-import flow.flownetwork.ResidualGraph;
+import flow.flownetwork.CompressedResidualGraph;
+import flow.flownetwork.DenseResidualGraph;
+import flow.flownetwork.MappedResidualGraph;
+import flow.io.GraphReader;
+import flow.io.GraphSnapshot;
+import flow.io.SolutionWriter;
+import flow.metrics.Metrics;
+import flow.metrics.Metrics.Phase;
 import flow.searchalgorithm.BreadthFirst;
-import flow.searchalgorithm.SearchAlgorithm;
 
 import java.io.*;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.IllegalFormatException;
-import java.util.Scanner;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Created by chrisat on 26.10.16.
  */
 public class FlowSolverDriver {
+    private static final String USAGE = "Usage: [--snapshot <file>] [--sparse] [--metrics] [--verbose] [--reduce] [--target <flow>] [--timeout <ms>] [--gap <fraction>]\n"
+                                      + "       [--mapped <storage file>] [--update <file>] [--engine <name>] [--search bfs|dfs]\n"
+                                      + "       [--min-cost] [--matching] [--dense] <input> <output>\n"
+                                      + "       --batch [--threads <n>] [--sparse] [--verbose] [--reduce] [--cache <entries>] [--cache-dir <directory>]\n"
+                                      + "               <directory|manifest> <output directory>";
+
     public static void main(String[] args) throws IllegalFormatException, IOException {
-        if(args.length != 2)
-            throw new IllegalArgumentException("Not correct type of arguments");
+        String snapshot = null;
+        String mapped = null;
+        String update = null;
+        boolean sparse = false;
+        boolean batch = false;
+        boolean reduce = false;
+        boolean verbose = false;
+        Planner planner = new Planner();
+        int cacheEntries = -1;
+        String cacheDirectory = null;
+        Metrics metrics = Metrics.DISABLED;
+        long target = -1;
+        long timeout = -1;
+        double gap = -1;
+        int threads = -1;
+        List<String> files = new ArrayList<>();
+        for(int i = 0; i < args.length; i++) {
+            switch(args[i]) {
+                case "--snapshot":
+                    if(++i == args.length) throw new IllegalArgumentException("Missing snapshot file. " + USAGE);
+                    snapshot = args[i];
+                    break;
+                case "--mapped":
+                    if(++i == args.length) throw new IllegalArgumentException("Missing storage file. " + USAGE);
+                    mapped = args[i];
+                    break;
+                case "--sparse":
+                    sparse = true;
+                    break;
+                case "--metrics":
+                    metrics = new Metrics();
+                    break;
+                case "--verbose":
+                    verbose = true;
+                    break;
+                case "--engine":
+                    if(++i == args.length) throw new IllegalArgumentException("Missing engine. " + USAGE);
+                    planner.setEngine(Planner.Engine.of(args[i]));
+                    break;
+                case "--search":
+                    if(++i == args.length) throw new IllegalArgumentException("Missing search. " + USAGE);
+                    planner.setSearch(Planner.Search.of(args[i]));
+                    break;
+                case "--min-cost":
+                    planner.setEngine(Planner.Engine.MINIMUM_COST);
+                    break;
+                case "--matching":
+                    planner.setEngine(Planner.Engine.MATCHING);
+                    break;
+                case "--dense":
+                    planner.setEngine(Planner.Engine.DENSE);
+                    break;
+                case "--target":
+                    if(++i == args.length) throw new IllegalArgumentException("Missing target flow. " + USAGE);
+                    target = Long.parseLong(args[i]);
+                    break;
+                case "--timeout":
+                    if(++i == args.length) throw new IllegalArgumentException("Missing timeout. " + USAGE);
+                    timeout = Long.parseLong(args[i]);
+                    break;
+                case "--gap":
+                    if(++i == args.length) throw new IllegalArgumentException("Missing gap. " + USAGE);
+                    gap = Double.parseDouble(args[i]);
+                    break;
+                case "--update":
+                    if(++i == args.length) throw new IllegalArgumentException("Missing update file. " + USAGE);
+                    update = args[i];
+                    break;
+                case "--reduce":
+                    reduce = true;
+                    break;
+                case "--batch":
+                    batch = true;
+                    break;
+                case "--cache":
+                    if(++i == args.length) throw new IllegalArgumentException("Missing number of cache entries. " + USAGE);
+                    cacheEntries = Integer.parseInt(args[i]);
+                    break;
+                case "--cache-dir":
+                    if(++i == args.length) throw new IllegalArgumentException("Missing cache directory. " + USAGE);
+                    cacheDirectory = args[i];
+                    break;
+                case "--threads":
+                    if(++i == args.length) throw new IllegalArgumentException("Missing number of threads. " + USAGE);
+                    threads = Integer.parseInt(args[i]);
+                    break;
+                default:
+                    files.add(args[i]);
+            }
+        }
+        if(files.size() != 2)
+            throw new IllegalArgumentException("Not correct type of arguments. " + USAGE);
 
-        int[][] graph = readFile(args[0]);
-        SearchAlgorithm pathFinder = new BreadthFirst();
-        EdmondKarp algorithm = new EdmondKarp(pathFinder);
-        ResidualGraph residualGraph = new ResidualGraph();
-        residualGraph.createGraph(graph);
+        if(batch) {
+            if(snapshot != null || mapped != null || update != null || metrics.isEnabled() || target >= 0 || timeout >= 0 || gap >= 0)
+                throw new IllegalArgumentException("--snapshot, --mapped, --update, --metrics, --target, --timeout and --gap "
+                                                   + "only apply to a single input. " + USAGE);
+            planner.setReduction(reduce);
+            SolutionCache cache = null;
+            if(cacheEntries > 0 || cacheDirectory != null)
+                cache = new SolutionCache(Math.max(cacheEntries, 1), Runtime.getRuntime().maxMemory() / 4,
+                                          cacheDirectory == null ? null : Paths.get(cacheDirectory));
+            solveBatch(files.get(0), files.get(1), threads >= 0 ? threads : Runtime.getRuntime().availableProcessors(),
+                       sparse, cache, planner, reduce, verbose);
+            return;
+        }
 
-        FlowSolver solver = new FlowSolver(residualGraph, algorithm, graph);
-        writeFile(args[1], solver.result());
-    }
+        if(cacheEntries >= 0 || cacheDirectory != null || threads >= 0)
+            throw new IllegalArgumentException("--cache, --cache-dir and --threads only apply to --batch. " + USAGE);
+        if(mapped != null && (snapshot != null || update != null || reduce || planner.getSearch() != null
+                              || planner.getEngine() != null && planner.getEngine() != Planner.Engine.MAPPED))
+            throw new IllegalArgumentException("--snapshot, --update, --reduce, --engine, --search, --min-cost, --matching "
+                                               + "and --dense do not apply to --mapped. " + USAGE);
 
+        SolveControl control = SolveControl.NONE;
+        if(target >= 0 || timeout >= 0 || gap >= 0) {
+            control = new SolveControl();
+            if(target >= 0) control.setTarget(target);
+            if(timeout >= 0) control.setTimeout(timeout, TimeUnit.MILLISECONDS);
+            if(gap >= 0) {
+                control.setGap(gap);
+                control.setBoundsListener(System.err::println);
+            }
+        }
+        Path input = Paths.get(files.get(0));
+        if(mapped != null) {
+            solveMapped(input, Paths.get(mapped), Paths.get(files.get(1)), sparse, metrics, control);
+            return;
+        }
+        GraphReader.Format format = GraphReader.detect(input);
+        if(planner.getEngine() == Planner.Engine.DENSE && snapshot == null && update == null && !reduce
+           && format == GraphReader.Format.MATRIX) {
+            solveDense(input, Paths.get(files.get(1)), sparse, metrics, control);
+            return;
+        }
+        CompressedResidualGraph residualGraph = GraphReader.read(input, format, metrics);
+        if(snapshot != null)
+            GraphSnapshot.write(residualGraph, Paths.get(snapshot), false);
+        planner.setReduction(reduce);
+        Planner.Plan plan = planner.plan(residualGraph, format);
+        if(verbose)
+            System.err.println(plan);
 
-    public static int[][] readFile(String file) throws FileNotFoundException {
-        Scanner in = new Scanner(new File(file));
+        FlowSolver solver = new FlowSolver(residualGraph, plan.create());
+        solver.setMetrics(metrics);
+        solver.setReduction(reduce);
+        FlowSolution solution = solver.result(control);
+        if(update != null) {
+            residualGraph.setCapacities(GraphReader.readUpdates(Paths.get(update)));
+            solution = solver.resolve(new FlowRepair(new BreadthFirst()), control);
+        }
+        writeSolution(solution, Paths.get(files.get(1)), sparse, metrics);
+    }
 
-        if(!in.hasNext())
-            throw new FileNotFoundException("Empty file is found. Not valid preferred format.");
+    /**
+     * Solve a graph too large for the heap, read into a mapped storage file and solved there by MappedMaximumFlow.
+     * The storage file is left behind holding the graph and its flow, see MappedResidualGraph.open.
+     */
+    public static void solveMapped(Path input, Path storage, Path output, boolean sparse, Metrics metrics,
+                                   SolveControl control) throws IOException {
+        MappedResidualGraph graph;
+        Metrics.Timer parsing = metrics.start(Phase.PARSE);
+        try {
+            graph = GraphReader.readMapped(input, storage);
+        } finally {
+            parsing.close();
+        }
+        try (MappedResidualGraph mapped = graph) {
+            FlowSolution solution;
+            Metrics.Timer solving = metrics.start(Phase.SOLVE);
+            try {
+                solution = new MappedMaximumFlow().search(mapped, metrics, control);
+            } finally {
+                solving.close();
+            }
+            writeSolution(solution, output, sparse, metrics);
+        }
+    }
+
+    /**
+     * Solve a matrix input with DenseMaximumFlow, read straight into a DenseResidualGraph without going through a
+     * compressed graph.
+     */
+    public static void solveDense(Path input, Path output, boolean sparse, Metrics metrics,
+                                  SolveControl control) throws IOException {
+        int[][] matrix;
+        Metrics.Timer parsing = metrics.start(Phase.PARSE);
+        try {
+            matrix = GraphReader.readArray(input);
+        } finally {
+            parsing.close();
+        }
+        DenseResidualGraph graph = new DenseResidualGraph();
+        Metrics.Timer construction = metrics.start(Phase.CONSTRUCTION);
+        try {
+            graph.createGraph(matrix);
+        } finally {
+            construction.close();
+        }
+        FlowSolution solution;
+        Metrics.Timer solving = metrics.start(Phase.SOLVE);
+        try {
+            solution = new DenseMaximumFlow().search(graph, metrics, control);
+        } finally {
+            solving.close();
+        }
+        writeSolution(solution, output, sparse, metrics);
+    }
 
-        int numberOfVertices = in.nextInt();
-        in.nextLine();
-        int[][] graph = new int[numberOfVertices][numberOfVertices];
+    private static void writeSolution(FlowSolution solution, Path output, boolean sparse, Metrics metrics) throws IOException {
+        if(!solution.isMaximum())
+            System.err.println("Stopped early, " + solution.getStatus() + ", flow " + solution.getMaximumFlow()
+                               + (solution.getUpperBound() < Long.MAX_VALUE ? ", at most " + solution.getUpperBound() : ""));
+        Metrics.Timer timer = metrics.start(Phase.OUTPUT);
+        try {
+            SolutionWriter.write(solution, output, sparse);
+        } finally {
+            timer.close();
+        }
+        if(metrics.isEnabled())
+            System.err.print(metrics);
+    }
 
-        for(int i = 0; i < numberOfVertices; i++) {
-            for(int j = 0; j < numberOfVertices; j++) {
-                graph[i][j] = in.nextInt();
-            }
-            in.nextLine();
+    /**
+     * Solve every instance of a directory or manifest on a pool of solver threads, reporting the throughput.
+     * @param cache - looked up before solving an instance, null to solve every instance.
+     * @param planner - plans the engine of every instance from its statistics, null to use EdmondKarp.
+     * @param reduce - reduce every instance before solving it, see GraphReduction.
+     * @param verbose - log the plan of every instance to stderr.
+     */
+    public static void solveBatch(String inputs, String outputDirectory, int threads, boolean sparse,
+                                  SolutionCache cache, Planner planner, boolean reduce, boolean verbose)
+            throws IOException {
+        BatchSolver solver = new BatchSolver(() -> new EdmondKarp(new BreadthFirst()), threads, threads, sparse);
+        solver.setCache(cache);
+        solver.setPlanner(planner);
+        solver.setReduction(reduce);
+        solver.setVerbose(verbose);
+        try {
+            System.out.println(solver.solve(BatchSolver.inputs(Paths.get(inputs)), Paths.get(outputDirectory)));
+            if(cache != null)
+                System.out.println(cache);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Batch interrupted");
         }
-        return graph;
+    }
+
+    public static int[][] readFile(String file) throws IOException {
+        return GraphReader.readArray(Paths.get(file));
     }
 
     public static void writeFile(String file, FlowSolution solution) throws IOException {
-        BufferedWriter writer = new BufferedWriter(new FileWriter(new File(file)));
-        writer.write(solution.toString());
-        writer.flush();
+        SolutionWriter.write(solution, Paths.get(file), false);
     }
 }
@@ -1,14 +1,94 @@
 package flow;
 
+import flow.flownetwork.CompressedResidualGraph;
 import flow.flownetwork.FlowGraph;
+import flow.metrics.Metrics;
+import flow.metrics.Metrics.Counter;
+import flow.searchalgorithm.DepthFirst;
+import flow.searchalgorithm.SearchAlgorithm;
+import flow.searchalgorithm.SearchState;
 
 /**
  * Created by chrisat on 28.10.16.
+ *
+ * Ford-Fulkerson with capacity scaling. Paths are only searched along arcs with a residual capacity of at least
+ * delta, starting from the largest power of two not above the largest capacity and halving delta once no such path
+ * is left. Each scaling phase augments at most O(E) times, so O(E log U) augmentations are needed in total for
+ * capacities up to U. The number of steps reported is the number of augmentations.
  */
 public class FordFulkerson implements FlowAlgorithm {
+    SearchAlgorithm pathFinder;
+
+    public FordFulkerson() {
+        this(new DepthFirst());
+    }
+
+    public FordFulkerson(SearchAlgorithm pathFinder) {
+        this.pathFinder = pathFinder;
+    }
+
+    @Override
+    public String getKind() {
+        return getClass().getSimpleName() + "-" + pathFinder.getClass().getSimpleName();
+    }
 
     @Override
     public FlowSolution search(FlowGraph graph) {
-        return null;
+        CompressedResidualGraph residualGraph = new CompressedResidualGraph();
+        residualGraph.createGraph(graph);
+        return search(residualGraph);
+    }
+
+    @Override
+    public FlowSolution search(CompressedResidualGraph graph, Metrics metrics) {
+        return search(graph, metrics, SolveControl.NONE);
+    }
+
+    /**
+     * Solve the graph, checking the control before every search.
+     */
+    @Override
+    public FlowSolution search(CompressedResidualGraph graph, Metrics metrics, SolveControl control) {
+        FlowSolution solution = new FlowSolution(graph);
+        SearchState state = new SearchState(graph.size());
+        int[] path = state.getPath();
+        int source = graph.getSource(), sink = graph.getSink();
+
+        long largest = 0;
+        for (int arc = 0; arc < graph.getNumberOfArcs(); arc++)
+            largest = Math.max(largest, graph.residualFlow(arc));
+
+        long flow = control == SolveControl.NONE ? 0 : graph.getFlowValue();
+        control.watch(graph, source, sink);
+        int phases = 0;
+        scaling:
+        for (long delta = Long.highestOneBit(largest); delta >= 1; delta /= 2) {
+            state.setThreshold(delta);
+            phases++;
+            while(true) {
+                if(control.shouldStop(flow)) break scaling;
+                int length = pathFinder.findPath(graph, source, sink, state);
+                if(length < 0) break;
+
+                long minimum = Long.MAX_VALUE;
+                for(int i = 0; i < length; i++)
+                    minimum = Math.min(graph.residualFlow(path[i]), minimum);
+
+                for(int i = 0; i < length; i++)
+                    graph.augment(path[i], minimum);
+                flow += minimum;
+                solution.setNumberOfSteps(solution.getNumberOfSteps()+1);
+            }
+        }
+
+        metrics.add(Counter.PHASES, phases);
+        metrics.add(Counter.AUGMENTATIONS, solution.getNumberOfSteps());
+        metrics.add(Counter.SEARCHES, state.getSearches());
+        metrics.add(Counter.ARCS_SCANNED, state.getArcsScanned());
+        solution.setMaximumFlow(graph.getFlowValue());
+        solution.setSourceCut(graph.getSourceCut());
+        solution.setMetrics(metrics);
+        control.finish(solution);
+        return solution;
     }
 }
@@ -0,0 +1,279 @@
+package flow;
+
+import flow.flownetwork.CompressedResidualGraph;
+import flow.flownetwork.EdgeList;
+import flow.searchalgorithm.SearchAlgorithm;
+import flow.searchalgorithm.SearchState;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+/**
+ * Gomory-Hu tree of an undirected network, built with Gusfield's algorithm from n-1 maximum flows.
+ * Vertex 1 is the root, and every other vertex v hangs below parent(v) with the value of a minimum v-parent(v) cut.
+ * The minimum cut between two vertices is the lightest edge on their tree path. Merging the tree edges heaviest
+ * first gives an order of the vertices in which that is the minimum over a range, so a query is a sparse table
+ * lookup in O(1).
+ *
+ * The residual graph is built once and each maximum flow starts by resetting its flow. The flow of vertex s only
+ * depends on parent(s), which only earlier vertices can change. Flows for the next vertices are computed ahead on
+ * other threads, each on its own flow array over the shared arcs. A flow is used once its vertex is reached if
+ * the parent has not moved meanwhile, and computed again otherwise.
+ */
+public class GomoryHuTree {
+    private EdmondKarp engine;
+    private int threads;
+    private int n;
+    private int[] parent;
+    private long[] cut;
+    private int[] position;
+    private long[][] table;
+    private int numberOfFlows;
+
+    public GomoryHuTree(SearchAlgorithm pathFinder) {
+        this(pathFinder, Runtime.getRuntime().availableProcessors());
+    }
+
+    public GomoryHuTree(SearchAlgorithm pathFinder, int threads) {
+        if (threads < 1) throw new IllegalArgumentException("At least one thread is needed");
+        engine = new EdmondKarp(pathFinder);
+        this.threads = threads;
+    }
+
+    /**
+     * Build the tree of an undirected graph given as a double array, every non zero graph[i][j] is an edge
+     * {i+1, j+1}, so a symmetric matrix counts each edge twice.
+     * @param graph - the graph draw as a double array.
+     */
+    public void createTree(int[][] graph) {
+        EdgeList edges = new EdgeList(graph.length);
+        for (int i = 0; i < graph.length; i++) {
+            for (int j = 0; j < graph.length; j++) {
+                if (graph[i][j] == 0) continue;
+                edges.addEdge(i + 1, j + 1, graph[i][j]);
+            }
+        }
+        createTree(graph.length, edges);
+    }
+
+    /**
+     * Build the tree of an undirected graph.
+     * @param n - the number of vertices, numbered 1..n.
+     * @param edges - the undirected edges, parallel edges add up.
+     */
+    public void createTree(int n, EdgeList edges) {
+        if (n < 1) throw new IllegalArgumentException("The graph has no vertices");
+        CompressedResidualGraph graph = new CompressedResidualGraph();
+        graph.createUndirectedGraph(n, edges);
+        this.n = n;
+        parent = new int[n + 1];
+        cut = new long[n + 1];
+        numberOfFlows = 0;
+        for (int v = 2; v <= n; v++) parent[v] = 1;
+
+        int workers = Math.min(threads, n - 1);
+        if (workers <= 1) {
+            Cut worker = new Cut(graph);
+            for (int s = 2; s <= n; s++) attach(worker.compute(s, parent[s]));
+        } else {
+            computeAhead(graph, workers);
+        }
+        createQueries();
+    }
+
+    /**
+     * Keep a window of flows computed ahead of the vertex being attached, one per worker.
+     */
+    private void computeAhead(CompressedResidualGraph graph, int workers) {
+        BlockingQueue<Cut> idle = new ArrayBlockingQueue<>(workers);
+        for (int w = 0; w < workers; w++) idle.add(new Cut(graph.copyTopology()));
+        Cut own = new Cut(graph);
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        Deque<Future<Result>> window = new ArrayDeque<>();
+        try {
+            int next = 2;
+            for (int s = 2; s <= n; s++) {
+                while (next <= n && next < s + workers) {
+                    int vertex = next++, to = parent[vertex];
+                    window.add(pool.submit(() -> {
+                        Cut worker = idle.take();
+                        try {
+                            return worker.compute(vertex, to);
+                        } finally {
+                            idle.add(worker);
+                        }
+                    }));
+                }
+                Result result = window.poll().get();
+                if (result.to != parent[s]) {
+                    numberOfFlows++;
+                    result = own.compute(s, parent[s]);
+                }
+                attach(result);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while building the tree", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Worker failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Hang the vertex below its parent with the value of their cut, and move the later vertices on its side of the
+     * cut which shared the parent below the vertex.
+     */
+    private void attach(Result result) {
+        numberOfFlows++;
+        int s = result.from, t = result.to;
+        cut[s] = result.value;
+        for (int i = s + 1; i <= n; i++)
+            if (result.side[i] && parent[i] == t) parent[i] = s;
+    }
+
+    /**
+     * Merge the tree edges heaviest first into a binary tree whose leaves are the vertices. Two vertices first meet
+     * at the lightest edge of their tree path, and listing the leaves in order puts every merge between the leaves
+     * it joined. The minimum cut of u and v is then the minimum merge between their positions.
+     */
+    private void createQueries() {
+        position = new int[n + 1];
+        long[] merges = new long[Math.max(n - 1, 1)];
+        int nodes = 2 * n - 1;
+        int[] left = new int[nodes], right = new int[nodes];
+        long[] weight = new long[nodes];
+        int[] component = new int[n + 1];
+        int[] top = new int[n + 1];
+        for (int v = 1; v <= n; v++) {
+            component[v] = v;
+            top[v] = v - 1;
+        }
+
+        int[] order = IntStream.rangeClosed(2, n).boxed()
+                               .sorted((a, b) -> Long.compare(cut[b], cut[a]))
+                               .mapToInt(Integer::intValue)
+                               .toArray();
+        int node = n;
+        for (int v : order) {
+            int a = find(component, v), b = find(component, parent[v]);
+            left[node] = top[a];
+            right[node] = top[b];
+            weight[node] = cut[v];
+            component[a] = b;
+            top[b] = node++;
+        }
+
+        int[] stack = new int[nodes];
+        int size = 0, leaves = 0;
+        int current = nodes - 1;
+        while (current != -1 || size > 0) {
+            while (current != -1) {
+                stack[size++] = current;
+                current = current >= n ? left[current] : -1;
+            }
+            int visited = stack[--size];
+            if (visited < n) position[visited + 1] = leaves++;
+            else merges[leaves - 1] = weight[visited];
+            current = visited >= n ? right[visited] : -1;
+        }
+
+        int levels = 32 - Integer.numberOfLeadingZeros(merges.length);
+        table = new long[levels][];
+        table[0] = merges;
+        for (int k = 1; k < levels; k++) {
+            table[k] = new long[merges.length - (1 << k) + 1];
+            for (int i = 0; i < table[k].length; i++)
+                table[k][i] = Math.min(table[k - 1][i], table[k - 1][i + (1 << (k - 1))]);
+        }
+    }
+
+    private static int find(int[] component, int v) {
+        while (component[v] != v) {
+            component[v] = component[component[v]];
+            v = component[v];
+        }
+        return v;
+    }
+
+    /**
+     * @return the value of a minimum cut separating the two vertices, the maximum flow between them.
+     */
+    public long minCut(int u, int v) {
+        if (u < 1 || u > n || v < 1 || v > n || u == v)
+            throw new IllegalArgumentException("Vertices " + u + " and " + v + " are not distinct vertices of the graph");
+        int first = Math.min(position[u], position[v]);
+        int last = Math.max(position[u], position[v]) - 1;
+        int k = 31 - Integer.numberOfLeadingZeros(last - first + 1);
+        return Math.min(table[k][first], table[k][last - (1 << k) + 1]);
+    }
+
+    /**
+     * @return the parent of the vertex in the tree, 0 for the root.
+     */
+    public int getParent(int vertex) {
+        return parent[vertex];
+    }
+
+    /**
+     * @return the value of the cut between the vertex and its parent, the weight of its tree edge.
+     */
+    public long getCutValue(int vertex) {
+        return cut[vertex];
+    }
+
+    public int getNumberOfVertices() {
+        return n;
+    }
+
+    /**
+     * @return the number of maximum flows computed, n-1 plus those computed ahead for a parent that moved.
+     */
+    public int getNumberOfFlows() {
+        return numberOfFlows;
+    }
+
+    private static class Result {
+        int from, to;
+        long value;
+        boolean[] side;
+    }
+
+    /**
+     * A residual graph with the working arrays of one thread's searches.
+     */
+    private class Cut {
+        private CompressedResidualGraph graph;
+        private SearchState state;
+
+        Cut(CompressedResidualGraph graph) {
+            this.graph = graph;
+            state = new SearchState(graph.size());
+        }
+
+        /**
+         * Maximum flow from s to t from a reset flow. The last search fails and leaves visited exactly
+         * the vertices still reachable from s, the side of s in a minimum cut.
+         */
+        Result compute(int s, int t) {
+            graph.resetFlow();
+            long value = engine.augment(graph, s, t, state);
+
+            Result result = new Result();
+            result.from = s;
+            result.to = t;
+            result.value = value;
+            result.side = new boolean[n + 1];
+            for (int v = 1; v <= n; v++) result.side[v] = state.isVisited(v);
+            return result;
+        }
+    }
+}
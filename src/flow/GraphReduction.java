@@ -0,0 +1,324 @@
+package flow;
+
+import flow.flownetwork.CompressedResidualGraph;
+import flow.flownetwork.EdgeList;
+
+import java.util.Arrays;
+
+/**
+ * Smaller graph with the same maximum flow, built before solving and mapped back afterwards.
+ *  - Vertices not on any path from the source to the sink are left out.
+ *  - Parallel edges are merged into one edge with the sum of their capacities.
+ *  - Chains through vertices with a single edge in and a single edge out are contracted into one edge with the
+ *    bottleneck capacity of the chain.
+ * Edges of the reduced graph are bundles of routes, a route is a chain of merged groups of original edges.
+ * The flow of a reduced edge fills its routes in turn, every group of a route carries the flow of the route and
+ * fills its original edges in turn. The source cut, the vertices reachable from the source in the residual graph,
+ * is the same for every maximum flow, so it is taken from the original graph once the flow is mapped back.
+ */
+public class GraphReduction {
+    private CompressedResidualGraph original;
+    private CompressedResidualGraph reduced;
+    private int[] forward;
+
+    private int[] groupArcs;
+    private int[] groupStart;
+    private int[] routeGroups;
+    private int[] routeStart;
+    private long[] routeCapacity;
+    private int[] edgeRoutes;
+    private int[] edgeStart;
+
+    private int prunedVertices;
+    private int contractedVertices;
+    private int mergedEdges;
+
+    /**
+     * Reduce the graph. The flow it holds is ignored, expand replaces it.
+     * @param original - the graph to reduce, kept unchanged until expand.
+     */
+    public GraphReduction(CompressedResidualGraph original) {
+        this.original = original;
+        int size = original.size();
+        boolean[] kept = findUseful();
+        for (int v = 0; v < size; v++) if (!kept[v]) prunedVertices++;
+
+        int groups = mergeParallel(kept);
+        int[] groupTail = new int[groups], groupHead = new int[groups];
+        long[] groupCapacity = new long[groups];
+        int[] in = new int[size], out = new int[size];
+        int[] outGroup = new int[size];
+        for (int g = 0; g < groups; g++) {
+            int arc = groupArcs[groupStart[g]];
+            groupTail[g] = original.getTail(arc);
+            groupHead[g] = original.getHead(arc);
+            for (int i = groupStart[g]; i < groupStart[g + 1]; i++)
+                groupCapacity[g] += original.getCapacity(groupArcs[i]);
+            in[groupHead[g]]++;
+            out[groupTail[g]]++;
+            outGroup[groupTail[g]] = g;
+        }
+
+        boolean[] contracted = new boolean[size];
+        for (int v = 0; v < size; v++) {
+            contracted[v] = kept[v] && v != original.getSource() && v != original.getSink() && in[v] == 1 && out[v] == 1;
+            if (contracted[v]) contractedVertices++;
+        }
+
+        int routes = contractChains(groups, groupTail, groupHead, groupCapacity, contracted, outGroup);
+        int[] routeTail = new int[routes], routeHead = new int[routes];
+        for (int r = 0; r < routes; r++) {
+            routeTail[r] = groupTail[routeGroups[routeStart[r]]];
+            routeHead[r] = groupHead[routeGroups[routeStart[r + 1] - 1]];
+        }
+        createReducedGraph(kept, contracted, routes, routeTail, routeHead);
+    }
+
+    /**
+     * @return for every vertex, true if it lies on a path from the source to the sink through edges with capacity.
+     */
+    private boolean[] findUseful() {
+        int size = original.size();
+        boolean[] fromSource = new boolean[size], toSink = new boolean[size];
+        int[] queue = new int[size];
+        int first = 0, last = 0;
+        fromSource[original.getSource()] = true;
+        queue[last++] = original.getSource();
+        while (first < last) {
+            int vertex = queue[first++];
+            for (int arc = original.firstArc(vertex); arc < original.lastArc(vertex); arc++) {
+                int to = original.getHead(arc);
+                if (fromSource[to] || original.getCapacity(arc) <= 0) continue;
+                fromSource[to] = true;
+                queue[last++] = to;
+            }
+        }
+
+        first = last = 0;
+        toSink[original.getSink()] = true;
+        queue[last++] = original.getSink();
+        while (first < last) {
+            int vertex = queue[first++];
+            for (int arc = original.firstArc(vertex); arc < original.lastArc(vertex); arc++) {
+                int from = original.getHead(arc);
+                if (toSink[from] || original.getCapacity(original.getReverse(arc)) <= 0) continue;
+                toSink[from] = true;
+                queue[last++] = from;
+            }
+        }
+
+        boolean[] kept = new boolean[size];
+        for (int v = 0; v < size; v++) kept[v] = fromSource[v] && toSink[v];
+        kept[original.getSource()] = kept[original.getSink()] = true;
+        return kept;
+    }
+
+    /**
+     * Group the arcs with capacity between kept vertices by tail and head, leaving out self loops.
+     * The arcs of group g are groupArcs[groupStart[g]..groupStart[g+1]).
+     * @return the number of groups.
+     */
+    private int mergeParallel(boolean[] kept) {
+        int size = original.size();
+        int[] seen = new int[size];
+        int[] groupOf = new int[size];
+        Arrays.fill(seen, -1);
+        int[] arcGroup = new int[original.getNumberOfArcs()];
+        int[] count = new int[original.getNumberOfArcs() + 1];
+        int groups = 0, arcs = 0;
+
+        for (int v = 0; v < size; v++) {
+            if (!kept[v]) continue;
+            for (int arc = original.firstArc(v); arc < original.lastArc(v); arc++) {
+                int to = original.getHead(arc);
+                arcGroup[arc] = -1;
+                if (!kept[to] || to == v || original.getCapacity(arc) <= 0) continue;
+                if (seen[to] != v) {
+                    seen[to] = v;
+                    groupOf[to] = groups++;
+                } else {
+                    mergedEdges++;
+                }
+                arcGroup[arc] = groupOf[to];
+                count[groupOf[to] + 1]++;
+                arcs++;
+            }
+        }
+
+        groupStart = Arrays.copyOf(count, groups + 1);
+        for (int g = 0; g < groups; g++) groupStart[g + 1] += groupStart[g];
+        int[] position = Arrays.copyOf(groupStart, groups);
+        groupArcs = new int[arcs];
+        for (int v = 0; v < size; v++) {
+            if (!kept[v]) continue;
+            for (int arc = original.firstArc(v); arc < original.lastArc(v); arc++)
+                if (arcGroup[arc] != -1) groupArcs[position[arcGroup[arc]]++] = arc;
+        }
+        return groups;
+    }
+
+    /**
+     * Follow every group out of a vertex which is not contracted through the contracted vertices after it.
+     * The groups of route r are routeGroups[routeStart[r]..routeStart[r+1]). Cycles made only of contracted
+     * vertices are never entered, they carry no flow from the source to the sink.
+     * @return the number of routes.
+     */
+    private int contractChains(int groups, int[] groupTail, int[] groupHead, long[] groupCapacity,
+                               boolean[] contracted, int[] outGroup) {
+        routeGroups = new int[groups];
+        routeStart = new int[groups + 1];
+        routeCapacity = new long[groups];
+        int routes = 0, length = 0;
+        for (int g = 0; g < groups; g++) {
+            if (contracted[groupTail[g]]) continue;
+            long capacity = Long.MAX_VALUE;
+            int next = g;
+            while (true) {
+                routeGroups[length++] = next;
+                capacity = Math.min(capacity, groupCapacity[next]);
+                if (!contracted[groupHead[next]]) break;
+                next = outGroup[groupHead[next]];
+            }
+            routeCapacity[routes++] = capacity;
+            routeStart[routes] = length;
+        }
+        routeStart = Arrays.copyOf(routeStart, routes + 1);
+        return routes;
+    }
+
+    /**
+     * Number the vertices left in their original order and merge routes with the same ends into one edge.
+     * Routes ending where they started are dropped, a cycle carries no flow from the source to the sink.
+     */
+    private void createReducedGraph(boolean[] kept, boolean[] contracted, int routes, int[] routeTail, int[] routeHead) {
+        int size = original.size();
+        int[] vertexOf = new int[size];
+        int k = 0;
+        for (int v = 0; v < size; v++) {
+            if (v == original.getSource() || v == original.getSink() || !kept[v] || contracted[v]) continue;
+            vertexOf[v] = ++k;
+        }
+        vertexOf[original.getSource()] = 0;
+        vertexOf[original.getSink()] = k + 1;
+
+        int[] byTail = new int[routes];
+        int[] count = new int[size + 1];
+        for (int r = 0; r < routes; r++) count[routeTail[r] + 1]++;
+        for (int v = 0; v < size; v++) count[v + 1] += count[v];
+        for (int r = 0; r < routes; r++) byTail[count[routeTail[r]]++] = r;
+
+        int[] seen = new int[size];
+        int[] edgeOf = new int[size];
+        Arrays.fill(seen, -1);
+        int[] routeEdge = new int[routes];
+        EdgeList edges = new EdgeList(routes);
+        EdgeList terminals = new EdgeList();
+        int[] listed = new int[routes];
+        int edgesCount = 0;
+        long[] capacity = new long[routes];
+        int[] edgeTail = new int[routes], edgeHead = new int[routes];
+        for (int r : byTail) {
+            int tail = routeTail[r], head = routeHead[r];
+            routeEdge[r] = -1;
+            if (tail == head) continue;
+            if (seen[head] != tail) {
+                seen[head] = tail;
+                edgeOf[head] = edgesCount;
+                edgeTail[edgesCount] = tail;
+                edgeHead[edgesCount++] = head;
+            } else {
+                mergedEdges++;
+            }
+            routeEdge[r] = edgeOf[head];
+            capacity[edgeOf[head]] = Math.min(Long.MAX_VALUE - routeCapacity[r], capacity[edgeOf[head]]) + routeCapacity[r];
+        }
+
+        edgeStart = new int[edgesCount + 1];
+        for (int r = 0; r < routes; r++) if (routeEdge[r] != -1) edgeStart[routeEdge[r] + 1]++;
+        for (int e = 0; e < edgesCount; e++) edgeStart[e + 1] += edgeStart[e];
+        int[] position = Arrays.copyOf(edgeStart, edgesCount);
+        edgeRoutes = new int[edgeStart[edgesCount]];
+        for (int r = 0; r < routes; r++) if (routeEdge[r] != -1) edgeRoutes[position[routeEdge[r]]++] = r;
+
+        int internal = 0;
+        for (int e = 0; e < edgesCount; e++) {
+            int from = vertexOf[edgeTail[e]], to = vertexOf[edgeHead[e]];
+            boolean terminal = from == 0 || to == k + 1;
+            if (terminal) terminals.addEdge(from, to, capacity[e]);
+            else edges.addEdge(from, to, capacity[e]);
+            listed[e] = terminal ? -1 : internal++;
+        }
+        reduced = new CompressedResidualGraph();
+        int[] arcs = reduced.createGraph(k, edges, terminals);
+        forward = new int[edgesCount];
+        int terminalIndex = internal;
+        for (int e = 0; e < edgesCount; e++)
+            forward[e] = arcs[listed[e] == -1 ? terminalIndex++ : listed[e]];
+    }
+
+    /**
+     * @return the reduced graph, to be solved instead of the original.
+     */
+    public CompressedResidualGraph getReducedGraph() {
+        return reduced;
+    }
+
+    /**
+     * Map the flow of a solved reduced graph back onto the original graph.
+     * @param solution - the solution of the reduced graph.
+     * @return the solution over the original graph and its vertex ids, with the steps of the reduced solve. An
+     *         approximate solution keeps the upper bound of the reduced solve, its cut is the residual one.
+     */
+    public FlowSolution expand(FlowSolution solution) {
+        original.resetFlow();
+        for (int e = 0; e < forward.length; e++) {
+            long flow = reduced.getFlow(forward[e]);
+            for (int i = edgeStart[e]; i < edgeStart[e + 1] && flow > 0; i++) {
+                int route = edgeRoutes[i];
+                long amount = Math.min(flow, routeCapacity[route]);
+                flow -= amount;
+                for (int j = routeStart[route]; j < routeStart[route + 1]; j++)
+                    fill(routeGroups[j], amount);
+            }
+        }
+
+        FlowSolution expanded = new FlowSolution(original);
+        expanded.setMaximumFlow(original.getFlowValue());
+        expanded.setSourceCut(original.getSourceCut());
+        expanded.setNumberOfSteps(solution.getNumberOfSteps());
+        expanded.setStatus(solution.getStatus());
+        expanded.setUpperBound(solution.getUpperBound());
+        expanded.setMetrics(solution.getMetrics());
+        return expanded;
+    }
+
+    private void fill(int group, long amount) {
+        for (int i = groupStart[group]; i < groupStart[group + 1] && amount > 0; i++) {
+            int arc = groupArcs[i];
+            long part = Math.min(amount, original.getCapacity(arc));
+            original.augment(arc, part);
+            amount -= part;
+        }
+    }
+
+    /**
+     * @return the number of vertices not on any path from the source to the sink.
+     */
+    public int getPrunedVertices() {
+        return prunedVertices;
+    }
+
+    /**
+     * @return the number of vertices removed by contracting chains.
+     */
+    public int getContractedVertices() {
+        return contractedVertices;
+    }
+
+    /**
+     * @return the number of edges merged into a parallel edge, before and after contracting chains.
+     */
+    public int getMergedEdges() {
+        return mergedEdges;
+    }
+}
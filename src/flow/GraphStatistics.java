@@ -0,0 +1,55 @@
+package flow;
+
+import flow.flownetwork.CompressedResidualGraph;
+
+/**
+ * Cheap statistics of a built graph, the ones the Planner rules use, taken in one pass over its arcs plus the
+ * classification of HopcroftKarp, O(V + E) in total. Only internal edges with capacity count, the arcs of the
+ * artificial source and sink are left out.
+ */
+public class GraphStatistics {
+    private int vertices;
+    private long edges;
+    private boolean matching;
+
+    public GraphStatistics(CompressedResidualGraph graph) {
+        int n = graph.getNumberOfVertices();
+        vertices = n;
+        for (int v = 1; v <= n; v++) {
+            for (int arc = graph.firstArc(v); arc < graph.lastArc(v); arc++) {
+                int head = graph.getHead(arc);
+                if (graph.getCapacity(arc) == 0 || head < 1 || head > n) continue;
+                edges++;
+            }
+        }
+        matching = HopcroftKarp.isUnitBipartite(graph);
+    }
+
+    public int getVertices() {
+        return vertices;
+    }
+
+    public long getEdges() {
+        return edges;
+    }
+
+    /**
+     * @return the edges over the n(n-1) ordered pairs of distinct vertices, self loops may take it above 1.
+     */
+    public double getDensity() {
+        return vertices < 2 ? 0 : edges / ((double) vertices * (vertices - 1));
+    }
+
+    /**
+     * @return true - if the graph is a unit capacity bipartite matching, see HopcroftKarp.
+     */
+    public boolean isMatching() {
+        return matching;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d vertices, %d edges, density %.3f%s", vertices, edges, getDensity(),
+                             matching ? ", matching" : "");
+    }
+}
@@ -0,0 +1,283 @@
+package flow;
+
+import flow.flownetwork.CompressedResidualGraph;
+import flow.flownetwork.FlowGraph;
+import flow.metrics.Metrics;
+import flow.metrics.Metrics.Counter;
+
+import java.util.Arrays;
+
+/**
+ * Hopcroft-Karp for graphs which are a unit capacity bipartite matching: a single source s fed by the artificial
+ * source, edges of capacity 1 from s to the left vertices, edges from the left to the right vertices, edges of
+ * capacity 1 from the right vertices to a single sink t which drains into the artificial sink. Each phase finds the
+ * shortest augmenting paths with one BFS from the free left vertices and augments a maximal set of them along the
+ * BFS layers, so O(sqrt(V)) phases of O(E) are needed in total. The matching works on adjacency arrays of its own,
+ * and the flow of the matching is written into the graph at the end, which resets any flow it held.
+ * The number of steps reported is the number of augmentations, the size of the matching.
+ */
+public class HopcroftKarp implements FlowAlgorithm {
+    private static final int UNSET = 0, SOURCE = 1, LEFT = 2, RIGHT = 3, SINK = 4;
+    private static final int INFINITY = Integer.MAX_VALUE;
+
+    private CompressedResidualGraph graph;
+    private int source, sink;
+    private int sourceArc, sinkArc;
+    private int[] role;
+    private int[] index;
+    private int numberOfLeft, numberOfRight;
+
+    private int[] adjacencyOffset;
+    private int[] adjacentRight;
+    private int[] adjacentArc;
+    private int[] leftArc;
+    private int[] rightArc;
+    private int[] matchLeft;
+    private int[] matchRight;
+    private int[] distance;
+    private int[] cursor;
+    private int[] queue;
+
+    private long searches;
+    private long arcsScanned;
+
+    /**
+     * @return true - if the graph is a unit capacity bipartite matching this algorithm can solve, else false.
+     */
+    public static boolean isUnitBipartite(CompressedResidualGraph graph) {
+        return new HopcroftKarp().classify(graph);
+    }
+
+    @Override
+    public FlowSolution search(FlowGraph graph) {
+        CompressedResidualGraph residualGraph = new CompressedResidualGraph();
+        residualGraph.createGraph(graph);
+        return search(residualGraph);
+    }
+
+    @Override
+    public FlowSolution search(CompressedResidualGraph graph, Metrics metrics) {
+        return search(graph, metrics, SolveControl.NONE);
+    }
+
+    /**
+     * Solve the matching, checking the control with its size before every phase.
+     */
+    @Override
+    public FlowSolution search(CompressedResidualGraph graph, Metrics metrics, SolveControl control) {
+        if (!classify(graph)) throw new IllegalArgumentException("Not a unit capacity bipartite graph");
+        FlowSolution solution = new FlowSolution(graph);
+        createAdjacency();
+        control.watch(graph, graph.getSource(), graph.getSink());
+
+        int size = 0, phases = 0;
+        searches = arcsScanned = 0;
+        while (!control.shouldStop(size) && createLayers()) {
+            phases++;
+            for (int u = 0; u < numberOfLeft; u++)
+                if (matchLeft[u] == -1 && augment(u)) size++;
+        }
+
+        graph.resetFlow();
+        graph.augment(sourceArc, size);
+        graph.augment(sinkArc, size);
+        for (int u = 0; u < numberOfLeft; u++) {
+            int k = matchLeft[u];
+            if (k == -1) continue;
+            graph.augment(leftArc[u], 1);
+            graph.augment(adjacentArc[k], 1);
+            graph.augment(rightArc[adjacentRight[k]], 1);
+        }
+
+        solution.setNumberOfSteps(size);
+        metrics.add(Counter.PHASES, phases);
+        metrics.add(Counter.AUGMENTATIONS, size);
+        metrics.add(Counter.SEARCHES, searches);
+        metrics.add(Counter.ARCS_SCANNED, arcsScanned);
+        solution.setMaximumFlow(graph.getFlowValue());
+        solution.setSourceCut(graph.getSourceCut());
+        solution.setMetrics(metrics);
+        control.finish(solution);
+        return solution;
+    }
+
+    /**
+     * Give every vertex its role in the matching, or find that the graph is not a matching. Only arcs with capacity
+     * count as edges. The artificial source and sink must each have a single edge, to s and from t, and every
+     * other edge must go from s to a left vertex, from a left to a right vertex or from a right vertex to t.
+     * Left vertices are told apart as the heads of the edges out of s, so the rules on the tail of each edge
+     * also leave every left vertex with s as its only in edge and every right vertex with t as its only out edge.
+     */
+    private boolean classify(CompressedResidualGraph graph) {
+        this.graph = graph;
+        int n = graph.size();
+        int artificialSource = graph.getSource(), artificialSink = graph.getSink();
+        role = new int[n];
+        index = new int[n];
+        numberOfLeft = numberOfRight = 0;
+
+        sourceArc = sinkArc = -1;
+        for (int arc = graph.firstArc(artificialSource); arc < graph.lastArc(artificialSource); arc++) {
+            if (graph.getCapacity(arc) == 0) continue;
+            if (sourceArc != -1) return false;
+            sourceArc = arc;
+        }
+        for (int arc = graph.firstArc(artificialSink); arc < graph.lastArc(artificialSink); arc++) {
+            if (graph.getCapacity(arc) > 0) return false;
+            if (graph.getCapacity(graph.getReverse(arc)) == 0) continue;
+            if (sinkArc != -1) return false;
+            sinkArc = graph.getReverse(arc);
+        }
+        if (sourceArc == -1 || sinkArc == -1) return false;
+        source = graph.getHead(sourceArc);
+        sink = graph.getTail(sinkArc);
+        if (source == sink || source == artificialSink || sink == artificialSource) return false;
+        role[artificialSource] = role[artificialSink] = -1;
+        role[source] = SOURCE;
+        role[sink] = SINK;
+
+        for (int arc = graph.firstArc(source); arc < graph.lastArc(source); arc++) {
+            if (graph.getCapacity(arc) == 0) continue;
+            int vertex = graph.getHead(arc);
+            if (role[vertex] != UNSET || graph.getCapacity(arc) != 1) return false;
+            role[vertex] = LEFT;
+            index[vertex] = numberOfLeft++;
+        }
+        for (int arc = graph.firstArc(sink); arc < graph.lastArc(sink); arc++) {
+            int pair = graph.getReverse(arc);
+            if (graph.getCapacity(pair) == 0) continue;
+            int vertex = graph.getHead(arc);
+            if (role[vertex] != UNSET || graph.getCapacity(pair) != 1) return false;
+            role[vertex] = RIGHT;
+            index[vertex] = numberOfRight++;
+        }
+        if (graph.getCapacity(sourceArc) < numberOfLeft || graph.getCapacity(sinkArc) < numberOfRight) return false;
+
+        for (int v = 1; v < n - 1; v++) {
+            for (int arc = graph.firstArc(v); arc < graph.lastArc(v); arc++) {
+                if (graph.getCapacity(arc) == 0) continue;
+                int head = graph.getHead(arc);
+                switch (role[v]) {
+                    case SOURCE: break;
+                    case LEFT: if (role[head] != RIGHT) return false; break;
+                    case RIGHT: if (head != sink) return false; break;
+                    case SINK: if (head != artificialSink) return false; break;
+                    default: return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Lay the edges from the left to the right vertices out by left vertex, keeping the arc of each edge and the
+     * arcs from s and to t, so the flow can be written back.
+     */
+    private void createAdjacency() {
+        adjacencyOffset = new int[numberOfLeft + 1];
+        leftArc = new int[numberOfLeft];
+        rightArc = new int[numberOfRight];
+        for (int arc = graph.firstArc(source); arc < graph.lastArc(source); arc++)
+            if (graph.getCapacity(arc) > 0) leftArc[index[graph.getHead(arc)]] = arc;
+        for (int arc = graph.firstArc(sink); arc < graph.lastArc(sink); arc++)
+            if (graph.getCapacity(graph.getReverse(arc)) > 0) rightArc[index[graph.getHead(arc)]] = graph.getReverse(arc);
+
+        for (int u = 0; u < numberOfLeft; u++) {
+            int vertex = graph.getHead(leftArc[u]);
+            int edges = 0;
+            for (int arc = graph.firstArc(vertex); arc < graph.lastArc(vertex); arc++)
+                if (graph.getCapacity(arc) > 0) edges++;
+            adjacencyOffset[u + 1] = adjacencyOffset[u] + edges;
+        }
+        adjacentRight = new int[adjacencyOffset[numberOfLeft]];
+        adjacentArc = new int[adjacencyOffset[numberOfLeft]];
+        for (int u = 0; u < numberOfLeft; u++) {
+            int vertex = graph.getHead(leftArc[u]);
+            int k = adjacencyOffset[u];
+            for (int arc = graph.firstArc(vertex); arc < graph.lastArc(vertex); arc++) {
+                if (graph.getCapacity(arc) == 0) continue;
+                adjacentRight[k] = index[graph.getHead(arc)];
+                adjacentArc[k++] = arc;
+            }
+        }
+
+        matchLeft = new int[numberOfLeft];
+        matchRight = new int[numberOfRight];
+        Arrays.fill(matchLeft, -1);
+        Arrays.fill(matchRight, -1);
+        distance = new int[numberOfLeft];
+        cursor = new int[numberOfLeft];
+        queue = new int[numberOfLeft];
+    }
+
+    /**
+     * BFS from every free left vertex, layering the left vertices by the length of the shortest alternating path
+     * reaching them, and reset the cursors for the augmentations of the phase. Layers beyond the first one
+     * reaching a free right vertex are not expanded.
+     * @return true - if some free right vertex was reached, else false.
+     */
+    private boolean createLayers() {
+        searches++;
+        int first = 0, last = 0;
+        for (int u = 0; u < numberOfLeft; u++) {
+            cursor[u] = adjacencyOffset[u];
+            if (matchLeft[u] == -1) {
+                distance[u] = 0;
+                queue[last++] = u;
+            } else {
+                distance[u] = INFINITY;
+            }
+        }
+
+        int limit = INFINITY;
+        while (first < last) {
+            int u = queue[first++];
+            if (distance[u] >= limit) continue;
+            for (int k = adjacencyOffset[u]; k < adjacencyOffset[u + 1]; k++) {
+                int w = matchRight[adjacentRight[k]];
+                if (w == -1) limit = distance[u] + 1;
+                else if (distance[w] == INFINITY) {
+                    distance[w] = distance[u] + 1;
+                    queue[last++] = w;
+                }
+            }
+            arcsScanned += adjacencyOffset[u + 1] - adjacencyOffset[u];
+        }
+        return limit != INFINITY;
+    }
+
+    /**
+     * Depth first search along the layers from a free left vertex to a free right vertex, on an explicit stack of
+     * left vertices whose cursor is the edge tried next. Edges leading nowhere are skipped for the rest of the
+     * phase, and a left vertex with none left is taken out of its layer.
+     * @return true - if the matching grew along a path from the vertex, else false.
+     */
+    private boolean augment(int start) {
+        int[] stack = queue;
+        int top = 0;
+        stack[top++] = start;
+
+        while (top > 0) {
+            int u = stack[top - 1];
+            int k = cursor[u];
+            if (k == adjacencyOffset[u + 1]) {
+                distance[u] = INFINITY;
+                top--;
+                continue;
+            }
+            arcsScanned++;
+            int w = matchRight[adjacentRight[k]];
+            if (w == -1) {
+                for (int i = top - 1; i >= 0; i--) {
+                    int x = stack[i];
+                    matchLeft[x] = cursor[x];
+                    matchRight[adjacentRight[cursor[x]]] = x;
+                }
+                return true;
+            }
+            if (distance[w] != INFINITY && distance[w] == distance[u] + 1) stack[top++] = w;
+            else cursor[u]++;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,202 @@
+package flow;
+
+import flow.flownetwork.CompressedResidualGraph;
+import flow.flownetwork.FlowGraph;
+import flow.flownetwork.MappedResidualGraph;
+import flow.metrics.Metrics;
+import flow.metrics.Metrics.Counter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Dinic's algorithm on a MappedResidualGraph, for graphs whose arcs live outside the heap. The phases are the ones of
+ * Dinic and LevelGraph, a BFS level graph saturated by a blocking flow, with the levels, current arcs, queue and path
+ * kept in arrays over the vertices, so the heap holds O(V) whatever the number of arcs and the collector has nothing
+ * to trace in the graph. The BFS and the current arc pointers scan the arcs of a vertex in order, which reads the
+ * mapped file sequentially within a vertex.
+ * Given a CompressedResidualGraph the algorithm copies it into a temporary file, solves the copy and writes the flow
+ * back, the arcs being numbered alike the flow and the steps are the ones of Dinic. The number of steps reported is
+ * the number of phases.
+ */
+public class MappedMaximumFlow implements FlowAlgorithm {
+    private Path directory;
+    private int[] level;
+    private int[] currentArc;
+    private int[] queue;
+    private int[] path;
+    private long searches;
+    private long arcsScanned;
+    private long augmentations;
+
+    public MappedMaximumFlow() {
+        this(null);
+    }
+
+    /**
+     * @param directory - where the temporary files of copied graphs go, null for the default temporary directory.
+     */
+    public MappedMaximumFlow(Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public FlowSolution search(FlowGraph graph) {
+        CompressedResidualGraph residualGraph = new CompressedResidualGraph();
+        residualGraph.createGraph(graph);
+        return search(residualGraph);
+    }
+
+    @Override
+    public FlowSolution search(CompressedResidualGraph graph, Metrics metrics) {
+        return search(graph, metrics, SolveControl.NONE);
+    }
+
+    /**
+     * Solve a mapped copy of the graph, and write its flow back into the graph.
+     */
+    @Override
+    public FlowSolution search(CompressedResidualGraph graph, Metrics metrics, SolveControl control) {
+        Path file = null;
+        try {
+            file = directory == null ? Files.createTempFile("flow", ".arcs")
+                                     : Files.createTempFile(directory, "flow", ".arcs");
+            FlowSolution solution = new FlowSolution(graph);
+            control.watch(graph, graph.getSource(), graph.getSink());
+            try (MappedResidualGraph mapped = MappedResidualGraph.create(file, graph)) {
+                solution.setNumberOfSteps(solve(mapped, metrics, control));
+                graph.resetFlow();
+                for (int arc = 0; arc < graph.getNumberOfArcs(); arc++) {
+                    long flow = mapped.getFlow(arc);
+                    if (flow > 0) graph.augment(arc, flow);
+                }
+            }
+            solution.setMaximumFlow(graph.getFlowValue());
+            solution.setSourceCut(graph.getSourceCut());
+            solution.setMetrics(metrics);
+            control.finish(solution);
+            return solution;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (file != null) file.toFile().delete();
+        }
+    }
+
+    /**
+     * Solve the mapped graph in place, checking the control before every phase. The control can not bound a mapped
+     * graph, see SolveControl.
+     */
+    public FlowSolution search(MappedResidualGraph graph, Metrics metrics, SolveControl control) {
+        FlowSolution solution = new FlowSolution(graph);
+        solution.setNumberOfSteps(solve(graph, metrics, control));
+        solution.setMaximumFlow(graph.getFlowValue());
+        solution.setSourceCut(graph.getSourceCut());
+        solution.setMetrics(metrics);
+        control.finish(solution);
+        return solution;
+    }
+
+    private int solve(MappedResidualGraph graph, Metrics metrics, SolveControl control) {
+        int size = graph.size();
+        level = new int[size];
+        currentArc = new int[size];
+        queue = new int[size];
+        path = new int[size];
+        searches = arcsScanned = augmentations = 0;
+        long flow = control == SolveControl.NONE ? 0 : graph.getFlowValue();
+
+        int phases = 0;
+        while (!control.shouldStop(flow) && createLevels(graph)) {
+            flow += blockingFlow(graph);
+            phases++;
+        }
+
+        metrics.add(Counter.PHASES, phases);
+        metrics.add(Counter.AUGMENTATIONS, augmentations);
+        metrics.add(Counter.SEARCHES, searches);
+        metrics.add(Counter.ARCS_SCANNED, arcsScanned);
+        return phases;
+    }
+
+    /**
+     * Label every vertex with its BFS distance from the source, as LevelGraph.createLevels does.
+     * @return true - if the sink is reachable, else false.
+     */
+    private boolean createLevels(MappedResidualGraph graph) {
+        Arrays.fill(level, -1);
+        int source = graph.getSource();
+        int first = 0, last = 0;
+        queue[last++] = source;
+        level[source] = 0;
+        searches++;
+
+        while (first < last) {
+            int vertex = queue[first++];
+            int end = graph.lastArc(vertex);
+            currentArc[vertex] = graph.firstArc(vertex);
+            arcsScanned += end - currentArc[vertex];
+            for (int arc = currentArc[vertex]; arc < end; arc++) {
+                int to = graph.getHead(arc);
+                if (level[to] != -1 || graph.residualFlow(arc) <= 0) continue;
+                level[to] = level[vertex] + 1;
+                queue[last++] = to;
+            }
+        }
+        return level[graph.getSink()] != -1;
+    }
+
+    /**
+     * Saturate the level graph with an iterative depth first search, as LevelGraph.blockingFlow does.
+     * @return the amount of flow pushed in this phase.
+     */
+    private long blockingFlow(MappedResidualGraph graph) {
+        int source = graph.getSource(), sink = graph.getSink();
+        long total = 0;
+        int depth = 0;
+        int vertex = source;
+
+        while (true) {
+            if (vertex == sink) {
+                long minimum = Long.MAX_VALUE;
+                for (int i = 0; i < depth; i++)
+                    minimum = Math.min(graph.residualFlow(path[i]), minimum);
+
+                int retreat = depth;
+                for (int i = depth - 1; i >= 0; i--) {
+                    graph.augment(path[i], minimum);
+                    if (graph.residualFlow(path[i]) == 0) retreat = i;
+                }
+                total += minimum;
+                augmentations++;
+                depth = retreat;
+                vertex = depth == 0 ? source : graph.getHead(path[depth - 1]);
+                continue;
+            }
+
+            int arc = currentArc[vertex];
+            int end = graph.lastArc(vertex);
+            while (arc < end && !isAdmissible(graph, vertex, arc)) arc++;
+            arcsScanned += arc - currentArc[vertex];
+            currentArc[vertex] = arc;
+
+            if (arc < end) {
+                path[depth++] = arc;
+                vertex = graph.getHead(arc);
+            } else {
+                level[vertex] = -1;
+                if (vertex == source) break;
+                vertex = graph.getTail(path[--depth]);
+                currentArc[vertex]++;
+            }
+        }
+        return total;
+    }
+
+    private boolean isAdmissible(MappedResidualGraph graph, int vertex, int arc) {
+        return graph.residualFlow(arc) > 0 && level[graph.getHead(arc)] == level[vertex] + 1;
+    }
+}
@@ -1,14 +1,302 @@
 package flow;
 
+import flow.flownetwork.CompressedResidualGraph;
 import flow.flownetwork.FlowGraph;
+import flow.metrics.Metrics;
+import flow.metrics.Metrics.Counter;
+
+import java.util.Arrays;
 
 /**
  * Created by chrisat on 28.10.16.
+ *
+ * Highest-label push-relabel. The first phase computes a maximum preflow, discharging the active vertex with the
+ * highest label first, with the gap heuristic and a global relabel (backward BFS from the sink) after every n
+ * relabels. The second phase returns the excess left at vertices cut off from the sink back to the source, so the
+ * graph holds a valid flow. The number of steps reported is the number of pushes.
  */
 public class MaximumFlow implements FlowAlgorithm{
+    private CompressedResidualGraph graph;
+    private int n, source, sink;
+    private int[] label;
+    private long[] excess;
+    private int[] currentArc;
+    private int[] labelCount;
+    private int[] bucket;
+    private int[] next;
+    private int[] queue;
+    private int highest;
+    private int relabelsSinceGlobal;
+
+    private long pushes;
+    private long relabels;
+    private long globalRelabels;
+    private long arcsScanned;
 
     @Override
     public FlowSolution search(FlowGraph graph) {
-        return null;
+        CompressedResidualGraph residualGraph = new CompressedResidualGraph();
+        residualGraph.createGraph(graph);
+        return search(residualGraph);
+    }
+
+    @Override
+    public FlowSolution search(CompressedResidualGraph graph, Metrics metrics) {
+        return search(graph, metrics, SolveControl.NONE);
+    }
+
+    /**
+     * Solve the graph, checking the control with the flow which reached the sink every CHECK_INTERVAL discharges.
+     * A stopped preflow is turned into a flow by the second phase as usual, which never takes flow from the sink.
+     */
+    @Override
+    public FlowSolution search(CompressedResidualGraph graph, Metrics metrics, SolveControl control) {
+        initialize(graph);
+        FlowSolution solution = new FlowSolution(graph);
+        control.watch(graph, source, sink);
+
+        findPreflow(control);
+        returnExcess();
+
+        solution.setMaximumFlow(graph.getFlowValue());
+        solution.setSourceCut(graph.getSourceCut());
+        solution.setNumberOfSteps((int) Math.min(pushes, Integer.MAX_VALUE));
+        metrics.add(Counter.PUSHES, pushes);
+        metrics.add(Counter.RELABELS, relabels);
+        metrics.add(Counter.GLOBAL_RELABELS, globalRelabels);
+        metrics.add(Counter.ARCS_SCANNED, arcsScanned);
+        solution.setMetrics(metrics);
+        control.finish(solution);
+        return solution;
+    }
+
+    private void initialize(CompressedResidualGraph graph) {
+        this.graph = graph;
+        n = graph.size();
+        source = graph.getSource();
+        sink = graph.getSink();
+        label = new int[n];
+        excess = new long[n];
+        currentArc = new int[n];
+        labelCount = new int[n + 1];
+        bucket = new int[n];
+        next = new int[n];
+        queue = new int[n];
+        pushes = relabels = globalRelabels = arcsScanned = 0;
+        relabelsSinceGlobal = 0;
+    }
+
+    /**
+     * Saturate the arcs out of the source and discharge active vertices, highest label first,
+     * until no vertex below label n carries excess or the control stops the solve.
+     */
+    private void findPreflow(SolveControl control) {
+        long start = control == SolveControl.NONE ? 0 : graph.getFlowValue();
+        if (control.shouldStop(start)) return;
+        for (int arc = graph.firstArc(source); arc < graph.lastArc(source); arc++) {
+            long residual = graph.residualFlow(arc);
+            if (residual <= 0) continue;
+            graph.augment(arc, residual);
+            excess[graph.getHead(arc)] += residual;
+            excess[source] -= residual;
+        }
+        globalRelabel();
+
+        int discharges = 0;
+        while (highest >= 0) {
+            int vertex = bucket[highest];
+            if (vertex == -1) {
+                highest--;
+                continue;
+            }
+            bucket[highest] = next[vertex];
+            if (label[vertex] != highest || excess[vertex] <= 0) continue;
+
+            discharge(vertex);
+            if (relabelsSinceGlobal >= n) globalRelabel();
+            if (++discharges % SolveControl.CHECK_INTERVAL == 0 && control.shouldStop(start + excess[sink])) return;
+        }
+    }
+
+    /**
+     * Push the excess of a vertex along admissible arcs, relabelling it whenever its arcs run out,
+     * until the excess is gone or the vertex is cut off from the sink (label >= n).
+     */
+    private void discharge(int vertex) {
+        while (excess[vertex] > 0 && label[vertex] < n) {
+            int arc = currentArc[vertex];
+            if (arc == graph.lastArc(vertex)) {
+                relabel(vertex);
+                continue;
+            }
+            int to = graph.getHead(arc);
+            long residual = graph.residualFlow(arc);
+            if (residual > 0 && label[vertex] == label[to] + 1) {
+                boolean inactive = excess[to] == 0;
+                push(vertex, arc, to, Math.min(excess[vertex], residual));
+                if (inactive && to != sink && label[to] < n) activate(to);
+            } else {
+                currentArc[vertex]++;
+                arcsScanned++;
+            }
+        }
+    }
+
+    private void push(int vertex, int arc, int to, long amount) {
+        graph.augment(arc, amount);
+        excess[vertex] -= amount;
+        excess[to] += amount;
+        pushes++;
+    }
+
+    /**
+     * Lift the vertex to one above its lowest residual neighbour. If it was the last vertex on its label,
+     * every vertex above the gap can no longer reach the sink and is lifted to n.
+     */
+    private void relabel(int vertex) {
+        int old = label[vertex];
+        int minimum = 2 * n;
+        for (int arc = graph.firstArc(vertex); arc < graph.lastArc(vertex); arc++) {
+            if (graph.residualFlow(arc) > 0) minimum = Math.min(minimum, label[graph.getHead(arc)]);
+        }
+        relabels++;
+        relabelsSinceGlobal++;
+        arcsScanned += graph.lastArc(vertex) - graph.firstArc(vertex);
+        currentArc[vertex] = graph.firstArc(vertex);
+
+        labelCount[old]--;
+        if (labelCount[old] == 0) {
+            for (int v = 0; v < n; v++) {
+                if (label[v] > old && label[v] < n) {
+                    labelCount[label[v]]--;
+                    label[v] = n;
+                }
+            }
+            label[vertex] = n;
+            return;
+        }
+        label[vertex] = Math.min(minimum + 1, n);
+        if (label[vertex] < n) labelCount[label[vertex]]++;
+    }
+
+    /**
+     * Set every label to the exact residual distance to the sink with a backward breadth first search.
+     * Vertices which can not reach the sink get label n. The active buckets are rebuilt from scratch.
+     */
+    private void globalRelabel() {
+        globalRelabels++;
+        relabelsSinceGlobal = 0;
+        Arrays.fill(label, n);
+        Arrays.fill(labelCount, 0);
+        label[sink] = 0;
+        int first = 0, last = 0;
+        queue[last++] = sink;
+
+        while (first < last) {
+            int vertex = queue[first++];
+            labelCount[label[vertex]]++;
+            arcsScanned += graph.lastArc(vertex) - graph.firstArc(vertex);
+            for (int arc = graph.firstArc(vertex); arc < graph.lastArc(vertex); arc++) {
+                int from = graph.getHead(arc);
+                if (label[from] != n || from == source || graph.residualFlow(graph.getReverse(arc)) <= 0) continue;
+                label[from] = label[vertex] + 1;
+                queue[last++] = from;
+            }
+        }
+
+        Arrays.fill(bucket, -1);
+        highest = -1;
+        for (int v = 0; v < n; v++) {
+            currentArc[v] = graph.firstArc(v);
+            if (v != source && v != sink && excess[v] > 0 && label[v] < n) activate(v);
+        }
+    }
+
+    private void activate(int vertex) {
+        next[vertex] = bucket[label[vertex]];
+        bucket[label[vertex]] = vertex;
+        highest = Math.max(highest, label[vertex]);
+    }
+
+    /**
+     * Second phase, send the excess stranded at vertices which can not reach the sink back to the source.
+     * Labels start as the residual distance to the source and vertices are discharged in FIFO order.
+     */
+    private void returnExcess() {
+        int size = 0;
+        for (int v = 0; v < n; v++)
+            if (v != source && v != sink && excess[v] > 0) size++;
+        if (size == 0) return;
+
+        Arrays.fill(label, 2 * n);
+        label[source] = 0;
+        int first = 0, last = 0;
+        queue[last++] = source;
+        while (first < last) {
+            int vertex = queue[first++];
+            for (int arc = graph.firstArc(vertex); arc < graph.lastArc(vertex); arc++) {
+                int from = graph.getHead(arc);
+                if (label[from] != 2 * n || from == sink || graph.residualFlow(graph.getReverse(arc)) <= 0) continue;
+                label[from] = label[vertex] + 1;
+                queue[last++] = from;
+            }
+        }
+
+        boolean[] queued = new boolean[n];
+        first = last = 0;
+        for (int v = 0; v < n; v++) {
+            currentArc[v] = graph.firstArc(v);
+            if (v != source && v != sink && excess[v] > 0) {
+                queue[last] = v;
+                last = (last + 1) % n;
+                queued[v] = true;
+            }
+        }
+
+        while (first != last) {
+            int vertex = queue[first];
+            first = (first + 1) % n;
+            queued[vertex] = false;
+            while (excess[vertex] > 0) {
+                int arc = currentArc[vertex];
+                if (arc == graph.lastArc(vertex)) {
+                    int minimum = Integer.MAX_VALUE;
+                    for (int a = graph.firstArc(vertex); a < graph.lastArc(vertex); a++)
+                        if (graph.residualFlow(a) > 0) minimum = Math.min(minimum, label[graph.getHead(a)]);
+                    label[vertex] = minimum + 1;
+                    currentArc[vertex] = graph.firstArc(vertex);
+                    relabels++;
+                    continue;
+                }
+                int to = graph.getHead(arc);
+                long residual = graph.residualFlow(arc);
+                if (residual > 0 && label[vertex] == label[to] + 1) {
+                    push(vertex, arc, to, Math.min(excess[vertex], residual));
+                    if (to != source && to != sink && !queued[to]) {
+                        queue[last] = to;
+                        last = (last + 1) % n;
+                        queued[to] = true;
+                    }
+                } else {
+                    currentArc[vertex]++;
+                }
+            }
+        }
+    }
+
+    public long getNumberOfPushes() {
+        return pushes;
+    }
+
+    public long getNumberOfRelabels() {
+        return relabels;
+    }
+
+    public long getNumberOfGlobalRelabels() {
+        return globalRelabels;
+    }
+
+    public long getNumberOfArcsScanned() {
+        return arcsScanned;
     }
 }
@@ -0,0 +1,203 @@
+package flow;
+
+import flow.flownetwork.CompressedResidualGraph;
+import flow.flownetwork.FlowGraph;
+import flow.metrics.Metrics;
+import flow.metrics.Metrics.Counter;
+
+import java.util.Arrays;
+
+/**
+ * Minimum cost maximum flow by successive shortest paths. Every vertex keeps a potential such that the reduced cost
+ * cost(u, v) + potential(u) - potential(v) of every residual arc is non-negative, so Dijkstra's algorithm finds each
+ * cheapest augmenting path in O(E log V) with a binary heap kept in primitive arrays. The potentials start at zero,
+ * or from a single Bellman-Ford pass when some arc has a negative cost, and after each search they move by the
+ * distances found, capped at the distance of the sink so that the search can stop as soon as the sink is settled.
+ * The flow already in the graph is reset first. The number of steps reported is the number of augmentations.
+ */
+public class MinimumCostFlow implements FlowAlgorithm {
+    private static final long INFINITY = Long.MAX_VALUE;
+
+    private CompressedResidualGraph graph;
+    private int n, source, sink;
+    private long[] potential;
+    private long[] distance;
+    private int[] parent;
+    private int[] heap;
+    private int[] position;
+    private int size;
+
+    private long searches;
+    private long arcsScanned;
+
+    @Override
+    public FlowSolution search(FlowGraph graph) {
+        CompressedResidualGraph residualGraph = new CompressedResidualGraph();
+        residualGraph.createGraph(graph);
+        return search(residualGraph);
+    }
+
+    @Override
+    public FlowSolution search(CompressedResidualGraph graph, Metrics metrics) {
+        return search(graph, metrics, SolveControl.NONE);
+    }
+
+    /**
+     * Solve the graph, checking the control before every search. A flow stopped early has the minimum cost
+     * among the flows of its value.
+     */
+    @Override
+    public FlowSolution search(CompressedResidualGraph graph, Metrics metrics, SolveControl control) {
+        initialize(graph);
+        FlowSolution solution = new FlowSolution(graph);
+        long totalCost = 0, flow = 0;
+        control.watch(graph, source, sink);
+
+        if (graph.hasCosts()) findPotentials();
+        while (!control.shouldStop(flow) && findPath()) {
+            long minimum = Long.MAX_VALUE;
+            for (int v = sink; v != source; v = graph.getTail(parent[v]))
+                minimum = Math.min(graph.residualFlow(parent[v]), minimum);
+            for (int v = sink; v != source; v = graph.getTail(parent[v])) {
+                graph.augment(parent[v], minimum);
+                totalCost += minimum * graph.getCost(parent[v]);
+            }
+            flow += minimum;
+            solution.setNumberOfSteps(solution.getNumberOfSteps()+1);
+        }
+
+        metrics.add(Counter.AUGMENTATIONS, solution.getNumberOfSteps());
+        metrics.add(Counter.SEARCHES, searches);
+        metrics.add(Counter.ARCS_SCANNED, arcsScanned);
+        solution.setMaximumFlow(graph.getFlowValue());
+        solution.setTotalCost(totalCost);
+        solution.setSourceCut(graph.getSourceCut());
+        solution.setMetrics(metrics);
+        control.finish(solution);
+        return solution;
+    }
+
+    private void initialize(CompressedResidualGraph graph) {
+        this.graph = graph;
+        graph.resetFlow();
+        n = graph.size();
+        source = graph.getSource();
+        sink = graph.getSink();
+        potential = new long[n];
+        distance = new long[n];
+        parent = new int[n];
+        heap = new int[n];
+        position = new int[n];
+        Arrays.fill(position, -1);
+        searches = arcsScanned = 0;
+    }
+
+    /**
+     * Bellman-Ford from the source over the arcs with capacity, queue based, giving potentials under which no
+     * reduced cost is negative. Vertices it does not reach can never be reached later and keep potential 0.
+     */
+    private void findPotentials() {
+        Arrays.fill(distance, INFINITY);
+        int[] relaxed = new int[n];
+        boolean[] queued = new boolean[n];
+        int[] queue = new int[n];
+        int first = 0, last = 0, length = 0;
+        distance[source] = 0;
+        queue[last++] = source;
+        queued[source] = true;
+        length++;
+
+        while (length > 0) {
+            int vertex = queue[first];
+            first = (first + 1) % n;
+            length--;
+            queued[vertex] = false;
+            for (int arc = graph.firstArc(vertex); arc < graph.lastArc(vertex); arc++) {
+                int to = graph.getHead(arc);
+                if (graph.residualFlow(arc) <= 0 || distance[vertex] + graph.getCost(arc) >= distance[to]) continue;
+                distance[to] = distance[vertex] + graph.getCost(arc);
+                if (queued[to]) continue;
+                if (++relaxed[to] > n) throw new IllegalArgumentException("Negative cost cycle found, no minimum cost exists");
+                queue[last] = to;
+                last = (last + 1) % n;
+                queued[to] = true;
+                length++;
+            }
+            arcsScanned += graph.lastArc(vertex) - graph.firstArc(vertex);
+        }
+        for (int v = 0; v < n; v++)
+            potential[v] = distance[v] == INFINITY ? 0 : distance[v];
+    }
+
+    /**
+     * Dijkstra on reduced costs from the source, stopped once the sink is settled. Vertices not settled by then are
+     * at least as far as the sink, so moving every potential by min(distance, distance of the sink) keeps every
+     * reduced cost non-negative and makes those of the path found zero.
+     * @return true - if the sink was reached, with the path in the parent arcs, else false.
+     */
+    private boolean findPath() {
+        searches++;
+        Arrays.fill(distance, INFINITY);
+        distance[source] = 0;
+        size = 0;
+        push(source);
+
+        while (size > 0) {
+            int vertex = pop();
+            if (vertex == sink) break;
+            for (int arc = graph.firstArc(vertex); arc < graph.lastArc(vertex); arc++) {
+                if (graph.residualFlow(arc) <= 0) continue;
+                int to = graph.getHead(arc);
+                long reduced = distance[vertex] + graph.getCost(arc) + potential[vertex] - potential[to];
+                if (reduced >= distance[to]) continue;
+                distance[to] = reduced;
+                parent[to] = arc;
+                push(to);
+            }
+            arcsScanned += graph.lastArc(vertex) - graph.firstArc(vertex);
+        }
+        while (size > 0) position[heap[--size]] = -1;
+
+        long reach = distance[sink];
+        if (reach == INFINITY) return false;
+        for (int v = 0; v < n; v++)
+            potential[v] += Math.min(distance[v], reach);
+        return true;
+    }
+
+    /**
+     * Insert the vertex into the heap, or move it up after its distance went down.
+     */
+    private void push(int vertex) {
+        int i = position[vertex];
+        if (i == -1) i = size++;
+        while (i > 0) {
+            int up = (i - 1) / 2;
+            if (distance[heap[up]] <= distance[vertex]) break;
+            heap[i] = heap[up];
+            position[heap[i]] = i;
+            i = up;
+        }
+        heap[i] = vertex;
+        position[vertex] = i;
+    }
+
+    private int pop() {
+        int top = heap[0];
+        position[top] = -1;
+        int vertex = heap[--size];
+        if (size == 0) return top;
+        int i = 0;
+        while (2 * i + 1 < size) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && distance[heap[child + 1]] < distance[heap[child]]) child++;
+            if (distance[heap[child]] >= distance[vertex]) break;
+            heap[i] = heap[child];
+            position[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = vertex;
+        position[vertex] = i;
+        return top;
+    }
+}
@@ -0,0 +1,316 @@
+package flow;
+
+import flow.flownetwork.CompressedResidualGraph;
+import flow.flownetwork.FlowGraph;
+import flow.metrics.Metrics;
+import flow.metrics.Metrics.Counter;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free parallel push-relabel after Hong and He. Work proceeds in rounds over the set of active vertices,
+ * which worker threads take in chunks and discharge concurrently. A vertex pushes to its lowest residual neighbour
+ * when it is higher, and otherwise lifts itself one above it, which stays correct while neighbours move.
+ * Excess and flow are changed with atomic adds on primitive arrays, labels are only written by the thread
+ * owning the vertex in the current round. Global relabelling runs between rounds, when no thread is pushing.
+ * Vertices cut off from the sink rise above n and send their excess back to the source, so the graph ends with
+ * a valid maximum flow. The number of steps reported is the number of pushes.
+ * The control is checked after every round with the flow which reached the sink. Once it stops the solve, the
+ * rounds go on without pushing into the sink and with labels measured to the source only, so the excess left goes
+ * back to the source and the graph ends with a valid flow of the value reached.
+ */
+public class ParallelMaximumFlow implements FlowAlgorithm {
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final int CHUNK = 64;
+
+    private int threads;
+    private CompressedResidualGraph graph;
+    private int n, source, sink;
+    private long[] capacity;
+    private long[] flow;
+    private long[] excess;
+    private int[] height;
+    private int[] stamp;
+    private int round;
+    private boolean draining;
+
+    private LongAdder pushes = new LongAdder();
+    private LongAdder relabels = new LongAdder();
+    private LongAdder arcsScanned = new LongAdder();
+    private long relabelsAtGlobal;
+    private long globalRelabels;
+
+    public ParallelMaximumFlow() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ParallelMaximumFlow(int threads) {
+        if (threads < 1) throw new IllegalArgumentException("At least one thread is needed");
+        this.threads = threads;
+    }
+
+    @Override
+    public FlowSolution search(FlowGraph graph) {
+        CompressedResidualGraph residualGraph = new CompressedResidualGraph();
+        residualGraph.createGraph(graph);
+        return search(residualGraph);
+    }
+
+    @Override
+    public FlowSolution search(CompressedResidualGraph graph, Metrics metrics) {
+        return search(graph, metrics, SolveControl.NONE);
+    }
+
+    /**
+     * Solve the graph, checking the control after every round, see the class comment.
+     */
+    @Override
+    public FlowSolution search(CompressedResidualGraph graph, Metrics metrics, SolveControl control) {
+        initialize(graph);
+        control.watch(graph, source, sink);
+        long start = control == SolveControl.NONE ? 0 : graph.getFlowValue();
+        int[] frontier = control.shouldStop(start) ? new int[0] : saturateSource();
+        globalRelabel();
+
+        ExecutorService pool = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+        try {
+            int[][] buffers = new int[threads][CHUNK];
+            while (frontier.length > 0) {
+                round++;
+                frontier = discharge(frontier, buffers, pool);
+                if (!draining && control.shouldStop(start + excess[sink])) {
+                    draining = true;
+                    globalRelabel();
+                } else if (relabels.sum() - relabelsAtGlobal >= n) {
+                    globalRelabel();
+                }
+            }
+        } finally {
+            if (pool != null) pool.shutdown();
+        }
+
+        for (int arc = 0; arc < flow.length; arc++) {
+            if (arc < graph.getReverse(arc)) graph.augment(arc, flow[arc] - graph.getFlow(arc));
+        }
+        FlowSolution solution = new FlowSolution(graph);
+        solution.setMaximumFlow(graph.getFlowValue());
+        solution.setSourceCut(graph.getSourceCut());
+        solution.setNumberOfSteps((int) Math.min(pushes.sum(), Integer.MAX_VALUE));
+        metrics.add(Counter.PUSHES, pushes.sum());
+        metrics.add(Counter.RELABELS, relabels.sum());
+        metrics.add(Counter.GLOBAL_RELABELS, globalRelabels);
+        metrics.add(Counter.PHASES, round - 1);
+        metrics.add(Counter.ARCS_SCANNED, arcsScanned.sum());
+        solution.setMetrics(metrics);
+        control.finish(solution);
+        return solution;
+    }
+
+    private void initialize(CompressedResidualGraph graph) {
+        this.graph = graph;
+        n = graph.size();
+        source = graph.getSource();
+        sink = graph.getSink();
+        int m = graph.getNumberOfArcs();
+        capacity = new long[m];
+        flow = new long[m];
+        for (int arc = 0; arc < m; arc++) {
+            capacity[arc] = graph.getCapacity(arc);
+            flow[arc] = graph.getFlow(arc);
+        }
+        excess = new long[n];
+        height = new int[n];
+        stamp = new int[n];
+        round = 1;
+        draining = false;
+        pushes.reset();
+        relabels.reset();
+        arcsScanned.reset();
+        relabelsAtGlobal = 0;
+        globalRelabels = 0;
+    }
+
+    /**
+     * Saturate every arc out of the source.
+     * @return the vertices given excess, the first frontier.
+     */
+    private int[] saturateSource() {
+        int[] frontier = new int[graph.lastArc(source) - graph.firstArc(source)];
+        int size = 0;
+        for (int arc = graph.firstArc(source); arc < graph.lastArc(source); arc++) {
+            long residual = capacity[arc] - flow[arc];
+            int to = graph.getHead(arc);
+            if (residual <= 0) continue;
+            flow[arc] += residual;
+            flow[graph.getReverse(arc)] -= residual;
+            excess[to] += residual;
+            if (to != sink && stamp[to] != round) {
+                stamp[to] = round;
+                frontier[size++] = to;
+            }
+        }
+        return Arrays.copyOf(frontier, size);
+    }
+
+    /**
+     * Discharge every vertex of the frontier, in parallel when it is large enough to be worth splitting.
+     * Each vertex appears once in the frontier, so it is owned by a single thread for the round.
+     * @return the vertices which received excess during the round, the next frontier.
+     */
+    private int[] discharge(int[] frontier, int[][] buffers, ExecutorService pool) {
+        int[] sizes = new int[threads];
+        if (pool == null || frontier.length <= CHUNK) {
+            for (int vertex : frontier) buffers[0] = discharge(vertex, buffers[0], sizes, 0);
+        } else {
+            AtomicInteger cursor = new AtomicInteger();
+            List<Callable<Void>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int worker = t;
+                workers.add(() -> {
+                    for (int start = cursor.getAndAdd(CHUNK); start < frontier.length; start = cursor.getAndAdd(CHUNK)) {
+                        for (int i = start; i < Math.min(start + CHUNK, frontier.length); i++)
+                            buffers[worker] = discharge(frontier[i], buffers[worker], sizes, worker);
+                    }
+                    return null;
+                });
+            }
+            try {
+                for (Future<Void> future : pool.invokeAll(workers)) future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while solving", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Worker failed", e.getCause());
+            }
+        }
+
+        int total = 0;
+        for (int size : sizes) total += size;
+        int[] next = new int[total];
+        int position = 0;
+        for (int t = 0; t < threads; t++) {
+            System.arraycopy(buffers[t], 0, next, position, sizes[t]);
+            position += sizes[t];
+        }
+        return next;
+    }
+
+    /**
+     * Push the excess of the vertex to its lowest residual neighbour while that one is lower, otherwise lift
+     * the vertex one above it. Neighbours that gain excess are stamped for the next round exactly once.
+     * @return the buffer of the worker, grown if it ran full.
+     */
+    private int[] discharge(int vertex, int[] buffer, int[] sizes, int worker) {
+        int degree = graph.lastArc(vertex) - graph.firstArc(vertex);
+        long scanned = 0;
+        while ((long) LONGS.getAcquire(excess, vertex) > 0) {
+            scanned += degree;
+            int lowest = Integer.MAX_VALUE;
+            int lowestArc = -1;
+            for (int arc = graph.firstArc(vertex); arc < graph.lastArc(vertex); arc++) {
+                if (capacity[arc] - (long) LONGS.getAcquire(flow, arc) <= 0) continue;
+                int head = graph.getHead(arc);
+                if (draining && head == sink) continue;
+                int h = (int) INTS.getAcquire(height, head);
+                if (h < lowest) {
+                    lowest = h;
+                    lowestArc = arc;
+                }
+            }
+            if (lowestArc == -1) break;
+
+            if ((int) INTS.getAcquire(height, vertex) > lowest) {
+                int to = graph.getHead(lowestArc);
+                long amount = Math.min((long) LONGS.getAcquire(excess, vertex),
+                                       capacity[lowestArc] - (long) LONGS.getAcquire(flow, lowestArc));
+                LONGS.getAndAdd(flow, lowestArc, amount);
+                LONGS.getAndAdd(flow, graph.getReverse(lowestArc), -amount);
+                LONGS.getAndAdd(excess, vertex, -amount);
+                LONGS.getAndAdd(excess, to, amount);
+                pushes.increment();
+                if (to != source && to != sink && activate(to)) {
+                    if (sizes[worker] == buffer.length) buffer = Arrays.copyOf(buffer, 2 * buffer.length);
+                    buffer[sizes[worker]++] = to;
+                }
+            } else {
+                INTS.setRelease(height, vertex, lowest + 1);
+                relabels.increment();
+            }
+        }
+        arcsScanned.add(scanned);
+        return buffer;
+    }
+
+    /**
+     * Stamp the vertex for the next round.
+     * @return true - if this call stamped it, else false (it was already in the next frontier).
+     */
+    private boolean activate(int vertex) {
+        int old = (int) INTS.getAcquire(stamp, vertex);
+        while (old != round) {
+            if (INTS.compareAndSet(stamp, vertex, old, round)) return true;
+            old = (int) INTS.getAcquire(stamp, vertex);
+        }
+        return false;
+    }
+
+    /**
+     * Exact labels from two backward breadth first searches over residual arcs, run between rounds:
+     * distance to the sink, or n plus the distance to the source for vertices cut off from the sink.
+     * While draining every vertex is labelled from the source alone.
+     */
+    private void globalRelabel() {
+        globalRelabels++;
+        relabelsAtGlobal = relabels.sum();
+        Arrays.fill(height, 2 * n);
+        int[] queue = new int[n];
+        int last = draining ? 0 : label(sink, 0, queue, 0);
+        height[source] = n;
+        label(source, n, queue, last);
+    }
+
+    private int label(int root, int base, int[] queue, int first) {
+        int last = first;
+        height[root] = base;
+        queue[last++] = root;
+        while (first < last) {
+            int vertex = queue[first++];
+            for (int arc = graph.firstArc(vertex); arc < graph.lastArc(vertex); arc++) {
+                int from = graph.getHead(arc);
+                int pair = graph.getReverse(arc);
+                if (height[from] != 2 * n || from == source || capacity[pair] - flow[pair] <= 0) continue;
+                height[from] = height[vertex] + 1;
+                queue[last++] = from;
+            }
+        }
+        return last;
+    }
+
+    public long getNumberOfPushes() {
+        return pushes.sum();
+    }
+
+    public long getNumberOfRelabels() {
+        return relabels.sum();
+    }
+
+    public long getNumberOfGlobalRelabels() {
+        return globalRelabels;
+    }
+
+    public long getNumberOfArcsScanned() {
+        return arcsScanned.sum();
+    }
+}
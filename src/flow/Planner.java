@@ -0,0 +1,234 @@
+package flow;
+
+import flow.flownetwork.CompressedResidualGraph;
+import flow.io.GraphReader.Format;
+import flow.searchalgorithm.BreadthFirst;
+import flow.searchalgorithm.DepthFirst;
+import flow.searchalgorithm.SearchAlgorithm;
+
+import java.util.function.Function;
+
+/**
+ * Picks the FlowAlgorithm and SearchAlgorithm for a graph from its GraphStatistics. The rules come from
+ * SolveBenchmark and RestrictedEngineBenchmark on every shape of NetworkGenerator, seed 42, at the SMALL scale and at
+ * the MEDIUM and LARGE scales of 4000 to 100000 vertices:
+ * 1. Graphs up to SMALL_EDGES edges, which EdmondKarp solved in about a millisecond, go to EdmondKarp with breadth
+ *    first search, as its solutions are the reference ones the driver must reproduce.
+ * 2. Matrix inputs with a density of DENSE_DENSITY or more go to DenseMaximumFlow, which finds the paths EdmondKarp
+ *    finds and so reproduces the references too. On random matrices of 1000 vertices it caught up with EdmondKarp
+ *    at a density of 0.05 and was 14 times faster at 0.5, 108 ms where EdmondKarp took 1.5 s.
+ * 3. Matchings go to HopcroftKarp, 9 ms at 20000 vertices where push-relabel took 17 ms, Dinic's algorithm 30 ms and
+ *    EdmondKarp 7.6 s.
+ * 4. Push-relabel otherwise. On the sparse, unit capacity and wide capacity range shapes it was within a millisecond
+ *    of Dinic's algorithm at 4000 vertices and up to twice as fast at 100000, on grids and GENRMF networks 4 to 21
+ *    times faster, and on AK networks, where Dinic's algorithm needs a phase per path, 700 times and more.
+ *    EdmondKarp was 340 times slower on dense graphs.
+ * Breadth first search is used by the engines finding paths, depth first was 100 times slower on sparse graphs and
+ * 370 times on wide capacity ranges, only ahead on small grids. The capacity scaling, Dinic, parallel, mapped and
+ * minimum cost engines are only used when asked for. An engine or search given to the planner overrides its choice.
+ */
+public class Planner {
+    static final long SMALL_EDGES = 1000;
+    static final double DENSE_DENSITY = 0.05;
+
+    private Engine engine;
+    private Search search;
+    private boolean reduce;
+
+    public enum Engine {
+        EDMOND_KARP("edmond-karp", search -> new EdmondKarp(search.create())),
+        CAPACITY_SCALING("capacity-scaling", search -> new FordFulkerson(search.create())),
+        DINIC("dinic", search -> new Dinic()),
+        PUSH_RELABEL("push-relabel", search -> new MaximumFlow()),
+        PARALLEL_PUSH_RELABEL("parallel-push-relabel", search -> new ParallelMaximumFlow()),
+        MATCHING("matching", search -> new HopcroftKarp()),
+        DENSE("dense", search -> new DenseMaximumFlow()),
+        MAPPED("mapped", search -> new MappedMaximumFlow()),
+        MINIMUM_COST("min-cost", search -> new MinimumCostFlow());
+
+        private final String name;
+        private final Function<Search, FlowAlgorithm> factory;
+
+        Engine(String name, Function<Search, FlowAlgorithm> factory) {
+            this.name = name;
+            this.factory = factory;
+        }
+
+        /**
+         * @param search - the search of the engines finding paths, ignored by the others.
+         * @return a new instance of the engine.
+         */
+        public FlowAlgorithm create(Search search) {
+            return factory.apply(search);
+        }
+
+        /**
+         * @return true - if the engine finds its paths with a SearchAlgorithm, else false.
+         */
+        public boolean usesSearch() {
+            return this == EDMOND_KARP || this == CAPACITY_SCALING;
+        }
+
+        /**
+         * @param name - the name of an engine as given on the command line, e.g. push-relabel.
+         */
+        public static Engine of(String name) {
+            for (Engine engine : values())
+                if (engine.name.equals(name)) return engine;
+            throw new IllegalArgumentException("Unknown engine " + name);
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    public enum Search {
+        BREADTH_FIRST("bfs"),
+        DEPTH_FIRST("dfs");
+
+        private final String name;
+
+        Search(String name) {
+            this.name = name;
+        }
+
+        public SearchAlgorithm create() {
+            return this == BREADTH_FIRST ? new BreadthFirst() : new DepthFirst();
+        }
+
+        /**
+         * @param name - bfs or dfs.
+         */
+        public static Search of(String name) {
+            for (Search search : values())
+                if (search.name.equals(name)) return search;
+            throw new IllegalArgumentException("Unknown search " + name);
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    /**
+     * @param engine - the engine to use whatever the statistics, null to let the planner choose.
+     */
+    public void setEngine(Engine engine) {
+        this.engine = engine;
+    }
+
+    /**
+     * @return the engine asked for, null if the planner chooses.
+     */
+    public Engine getEngine() {
+        return engine;
+    }
+
+    /**
+     * @param search - the search to use for the engines finding paths, null to let the planner choose.
+     */
+    public void setSearch(Search search) {
+        this.search = search;
+    }
+
+    /**
+     * @return the search asked for, null if the planner chooses.
+     */
+    public Search getSearch() {
+        return search;
+    }
+
+    /**
+     * @param reduce - the graph is reduced before solving, which contracts the unit chains of a matching, so
+     *               matchings are not planned for HopcroftKarp.
+     */
+    public void setReduction(boolean reduce) {
+        this.reduce = reduce;
+    }
+
+    public Plan plan(CompressedResidualGraph graph) {
+        return plan(graph, null);
+    }
+
+    /**
+     * @param format - the format the graph was read from, null if not known.
+     */
+    public Plan plan(CompressedResidualGraph graph, Format format) {
+        return plan(new GraphStatistics(graph), format);
+    }
+
+    public Plan plan(GraphStatistics statistics) {
+        return plan(statistics, null);
+    }
+
+    public Plan plan(GraphStatistics statistics, Format format) {
+        Engine chosen;
+        String reason;
+        if (engine != null) {
+            chosen = engine;
+            reason = "asked for";
+        } else if (statistics.getEdges() <= SMALL_EDGES) {
+            chosen = Engine.EDMOND_KARP;
+            reason = "small graph";
+        } else if (format == Format.MATRIX && statistics.getDensity() >= DENSE_DENSITY) {
+            chosen = Engine.DENSE;
+            reason = "dense matrix";
+        } else if (statistics.isMatching() && !reduce) {
+            chosen = Engine.MATCHING;
+            reason = "unit capacity bipartite matching";
+        } else {
+            chosen = Engine.PUSH_RELABEL;
+            reason = "general graph";
+        }
+        return new Plan(chosen, search != null ? search : Search.BREADTH_FIRST, statistics, reason);
+    }
+
+    /**
+     * The engine and search chosen for a graph, with the statistics and the reason they were chosen for.
+     */
+    public static class Plan {
+        private Engine engine;
+        private Search search;
+        private GraphStatistics statistics;
+        private String reason;
+
+        Plan(Engine engine, Search search, GraphStatistics statistics, String reason) {
+            this.engine = engine;
+            this.search = search;
+            this.statistics = statistics;
+            this.reason = reason;
+        }
+
+        /**
+         * @return a new instance of the algorithm chosen.
+         */
+        public FlowAlgorithm create() {
+            return engine.create(search);
+        }
+
+        public Engine getEngine() {
+            return engine;
+        }
+
+        public Search getSearch() {
+            return search;
+        }
+
+        public GraphStatistics getStatistics() {
+            return statistics;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return "Plan: " + engine + (engine.usesSearch() ? " with " + search : "") + ", " + reason
+                   + " (" + statistics + ")";
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package flow;
+
+import flow.flownetwork.CompressedResidualGraph;
+import flow.io.GraphSnapshot;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Least recently used cache of solutions, keyed by the content hash of the graph together with its number of
+ * vertices and arcs and the kind of solution, so a maximum flow is never returned for a minimum cost flow or the
+ * flow of one engine for another, see FlowAlgorithm.getKind(). The memory held is bounded both by a number of entries and an estimate of the bytes their
+ * graphs take. Entries evicted from memory are spilled to a directory when one is given, as a snapshot of the
+ * solved graph with its flow next to a line holding the maximum flow, the steps and the cost, and are read back
+ * from there on a later miss. Only solutions of compressed residual graphs are cached.
+ * A solution from the cache shares its graph with every other hit, it must not be changed or solved again.
+ * A cache may be shared by the threads of a batch. The entries in memory are guarded by the cache, while spilling
+ * and loading go to disk outside the lock, each file written under a temporary name and moved into place, so a
+ * thread never reads a spilled file half written.
+ */
+public class SolutionCache {
+    private int maximumEntries;
+    private long maximumBytes;
+    private Path spillDirectory;
+    private LinkedHashMap<Key, FlowSolution> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    private long hits;
+    private long diskHits;
+    private long misses;
+    private long evictions;
+    private long spills;
+
+    public SolutionCache(int maximumEntries, long maximumBytes) {
+        this(maximumEntries, maximumBytes, null);
+    }
+
+    /**
+     * @param maximumEntries - the most solutions kept in memory.
+     * @param maximumBytes - the most bytes of solved graphs kept in memory, as estimated from their arrays.
+     * @param spillDirectory - where evicted solutions go, null to drop them.
+     */
+    public SolutionCache(int maximumEntries, long maximumBytes, Path spillDirectory) {
+        if (maximumEntries < 1 || maximumBytes < 1)
+            throw new IllegalArgumentException("The cache needs room for at least one entry");
+        this.maximumEntries = maximumEntries;
+        this.maximumBytes = maximumBytes;
+        this.spillDirectory = spillDirectory;
+        if (spillDirectory != null) {
+            try {
+                Files.createDirectories(spillDirectory);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Look the graph up, solving it on a miss.
+     * @param graph - the graph, hashed while it was parsed.
+     * @param kind - the kind of solution, only solutions of the same kind are returned.
+     * @param solver - solves the graph on a miss.
+     * @return the cached solution, or the new one which is then cached if it is a maximum flow.
+     */
+    public FlowSolution solve(CompressedResidualGraph graph, String kind, Supplier<FlowSolution> solver) {
+        Key key = new Key(graph, kind);
+        FlowSolution solution = get(key);
+        if (solution != null) return solution;
+        solution = load(key);
+        if (solution != null) {
+            spill(loaded(key, solution));
+            return solution;
+        }
+        solution = solver.get();
+        spill(put(key, solution));
+        return solution;
+    }
+
+    private synchronized FlowSolution get(Key key) {
+        FlowSolution solution = entries.get(key);
+        if (solution != null) hits++;
+        return solution;
+    }
+
+    /**
+     * @return the entries evicted to make room, to be spilled.
+     */
+    private synchronized List<Map.Entry<Key, FlowSolution>> loaded(Key key, FlowSolution solution) {
+        diskHits++;
+        return store(key, solution);
+    }
+
+    /**
+     * @return the entries evicted to make room, to be spilled.
+     */
+    private synchronized List<Map.Entry<Key, FlowSolution>> put(Key key, FlowSolution solution) {
+        misses++;
+        if (!(solution.getGraph() instanceof CompressedResidualGraph) || !solution.isMaximum())
+            return Collections.emptyList();
+        return store(key, solution);
+    }
+
+    private List<Map.Entry<Key, FlowSolution>> store(Key key, FlowSolution solution) {
+        FlowSolution old = entries.put(key, solution);
+        if (old != null) bytes -= sizeOf(old);
+        bytes += sizeOf(solution);
+
+        List<Map.Entry<Key, FlowSolution>> evicted = new ArrayList<>();
+        Iterator<Map.Entry<Key, FlowSolution>> eldest = entries.entrySet().iterator();
+        while ((entries.size() > maximumEntries || bytes > maximumBytes) && entries.size() > 1) {
+            Map.Entry<Key, FlowSolution> entry = eldest.next();
+            evicted.add(new AbstractMap.SimpleImmutableEntry<>(entry));
+            eldest.remove();
+            bytes -= sizeOf(entry.getValue());
+            evictions++;
+        }
+        return evicted;
+    }
+
+    /**
+     * @return an estimate of the bytes held by the arrays of the solved graph and the source cut.
+     */
+    private static long sizeOf(FlowSolution solution) {
+        CompressedResidualGraph graph = (CompressedResidualGraph) solution.getGraph();
+        long arcs = graph.getNumberOfArcs();
+        return arcs * (2 * Integer.BYTES + (graph.hasCosts() ? 3 : 2) * Long.BYTES)
+               + (long) (graph.size() + 1) * Integer.BYTES
+               + (long) solution.getSourceCut().size() * 32 + 256;
+    }
+
+    /**
+     * Write the evicted entries to the spill directory, outside the lock. An entry already on disk is skipped.
+     */
+    private void spill(List<Map.Entry<Key, FlowSolution>> evicted) {
+        if (spillDirectory == null) return;
+        for (Map.Entry<Key, FlowSolution> entry : evicted) {
+            Key key = entry.getKey();
+            FlowSolution solution = entry.getValue();
+            Path header = key.file(spillDirectory, ".solution");
+            if (Files.exists(header)) continue;
+            try {
+                Path snapshot = Files.createTempFile(spillDirectory, null, ".tmp");
+                GraphSnapshot.write((CompressedResidualGraph) solution.getGraph(), snapshot, true);
+                Files.move(snapshot, key.file(spillDirectory, ".snapshot"), StandardCopyOption.REPLACE_EXISTING,
+                           StandardCopyOption.ATOMIC_MOVE);
+                String line = solution.getMaximumFlow() + " " + solution.getNumberOfSteps()
+                              + (solution.hasTotalCost() ? " " + solution.getTotalCost() : "") + "\n";
+                Path solved = Files.createTempFile(spillDirectory, null, ".tmp");
+                Files.write(solved, line.getBytes());
+                Files.move(solved, header, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            synchronized (this) {
+                spills++;
+            }
+        }
+    }
+
+    private FlowSolution load(Key key) {
+        if (spillDirectory == null) return null;
+        Path header = key.file(spillDirectory, ".solution");
+        if (!Files.exists(header)) return null;
+        try {
+            String[] fields = new String(Files.readAllBytes(header)).trim().split(" ");
+            CompressedResidualGraph graph = GraphSnapshot.read(key.file(spillDirectory, ".snapshot"));
+            if (graph.getNumberOfVertices() != key.vertices || graph.getNumberOfArcs() != key.arcs) return null;
+            FlowSolution solution = new FlowSolution(graph);
+            solution.setMaximumFlow(Long.parseLong(fields[0]));
+            solution.setNumberOfSteps(Integer.parseInt(fields[1]));
+            if (fields.length > 2) solution.setTotalCost(Long.parseLong(fields[2]));
+            solution.setSourceCut(graph.getSourceCut());
+            return solution;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Forget every entry in memory, the spilled ones stay on disk.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the estimated bytes held in memory.
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return lookups missed in memory but found spilled on disk.
+     */
+    public synchronized long getDiskHits() {
+        return diskHits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized long getSpills() {
+        return spills;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("Cache: %d hits, %d disk hits, %d misses, %d evictions, %d spills, %d entries (%d bytes)",
+                             hits, diskHits, misses, evictions, spills, entries.size(), bytes);
+    }
+
+    private static class Key {
+        private long hash;
+        private int vertices;
+        private int arcs;
+        private String kind;
+
+        Key(CompressedResidualGraph graph, String kind) {
+            hash = graph.getContentHash();
+            vertices = graph.getNumberOfVertices();
+            arcs = graph.getNumberOfArcs();
+            this.kind = kind;
+        }
+
+        Path file(Path directory, String extension) {
+            return directory.resolve(String.format("%016x-%d-%d-%s%s", hash, vertices, arcs, kind, extension));
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) return false;
+            Key key = (Key) other;
+            return hash == key.hash && vertices == key.vertices && arcs == key.arcs && kind.equals(key.kind);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(hash, vertices, arcs, kind);
+        }
+    }
+}
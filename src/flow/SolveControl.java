@@ -0,0 +1,280 @@
+package flow;
+
+import flow.datastructure.graph.Vertex;
+import flow.flownetwork.CompressedResidualGraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Limits on a single solve, checked by the engines as their flow grows: a target flow value which is enough to stop
+ * at, a deadline, and a cancellation flag which may be set from any thread. Each check hands the flow value found so
+ * far to the progress callback whenever it changed. An engine stopped early still leaves a valid flow in the graph,
+ * the solution then tells why it stopped, see FlowSolution.getStatus(). A control is meant for one solve, its
+ * status is the one of the last check.
+ * The engines finding paths check after every augmentation, Dinic's algorithm and HopcroftKarp after every phase
+ * push-relabel every CHECK_INTERVAL discharges and parallel push-relabel after every round, the last two with the
+ * flow which reached the sink as its value.
+ * Engines without checks of their own only look at the control before and after they solve.
+ *
+ * With a gap or a bounds listener set, the control also bounds the maximum flow from above, at most once every bound
+ * interval, with the capacity of the cheapest of the s-t cuts laid out by one breadth first search of the residual
+ * graph, the vertices within distance k of the source for every k below the distance of the sink. That takes
+ * O(V + E) whatever state the engine left the arcs in, the cuts of a preflow or of a flow kept outside the graph
+ * are still cuts, only weaker. The flow value is the lower bound, so the solve can stop as soon as the two are within
+ * the relative gap, and a solve stopped early ends with the bounds of the flow it left, the upper bound and best cut
+ * of the solution are then the best ones found.
+ */
+public class SolveControl {
+    /**
+     * Never stops a solve, and can not be changed.
+     */
+    public static final SolveControl NONE = new SolveControl();
+
+    static final int CHECK_INTERVAL = 64;
+
+    private long target = Long.MAX_VALUE;
+    private long deadline;
+    private boolean hasDeadline;
+    private LongConsumer progress;
+    private long reported = -1;
+    private volatile boolean cancelled;
+    private FlowSolution.Status status = FlowSolution.Status.MAXIMUM;
+
+    private double gap = -1;
+    private Consumer<FlowBounds> boundsListener;
+    private long boundInterval = TimeUnit.MILLISECONDS.toNanos(100);
+    private long nextBound;
+    private CompressedResidualGraph graph;
+    private int source, sink;
+    private FlowBounds bounds;
+    private int[] distance;
+    private int[] queue;
+    private long[] crossing;
+
+    /**
+     * @param target - stop as soon as the flow value is at least the target, the maximum may be larger.
+     */
+    public void setTarget(long target) {
+        checkChangeable();
+        if (target < 0) throw new IllegalArgumentException("Target flow must be non-negative");
+        this.target = target;
+    }
+
+    /**
+     * @param deadline - stop once System.nanoTime() passes the deadline.
+     */
+    public void setDeadline(long deadline) {
+        checkChangeable();
+        this.deadline = deadline;
+        hasDeadline = true;
+    }
+
+    /**
+     * Set the deadline the timeout from now.
+     */
+    public void setTimeout(long timeout, TimeUnit unit) {
+        setDeadline(System.nanoTime() + unit.toNanos(timeout));
+    }
+
+    /**
+     * @param progress - receives the flow value found so far, on the solving thread.
+     */
+    public void setProgress(LongConsumer progress) {
+        checkChangeable();
+        this.progress = progress;
+    }
+
+    /**
+     * @param gap - stop once the upper bound is within this fraction of itself from the flow value, 0 to stop
+     *            only when the flow is proven maximum.
+     */
+    public void setGap(double gap) {
+        checkChangeable();
+        if (gap < 0 || gap >= 1) throw new IllegalArgumentException("Gap must be at least 0 and below 1");
+        this.gap = gap;
+    }
+
+    /**
+     * @param boundsListener - receives the bounds every time they are computed, on the solving thread.
+     */
+    public void setBoundsListener(Consumer<FlowBounds> boundsListener) {
+        checkChangeable();
+        this.boundsListener = boundsListener;
+    }
+
+    /**
+     * @param interval - the least time between two computations of the bounds, 100 ms by default.
+     */
+    public void setBoundInterval(long interval, TimeUnit unit) {
+        checkChangeable();
+        boundInterval = unit.toNanos(interval);
+    }
+
+    /**
+     * Ask the solve to stop, the engine stops at its next check.
+     */
+    public void cancel() {
+        checkChangeable();
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public long getTarget() {
+        return target;
+    }
+
+    /**
+     * @return the last bounds computed, null before the first.
+     */
+    public FlowBounds getBounds() {
+        return bounds;
+    }
+
+    /**
+     * Called by the engines as they start, the bounds are taken on the graph between source and sink.
+     */
+    public void watch(CompressedResidualGraph graph, int source, int sink) {
+        if (this == NONE) return;
+        this.graph = graph;
+        this.source = source;
+        this.sink = sink;
+        bounds = null;
+        nextBound = System.nanoTime();
+    }
+
+    /**
+     * Report the flow value found so far and decide whether the solve stops, a reached target before a
+     * cancellation before a passed deadline before a closed gap.
+     * @param flow - the flow value found so far, a valid flow of at least this value must be left when stopping.
+     * @return true - if the engine must stop, else false.
+     */
+    public boolean shouldStop(long flow) {
+        report(flow);
+        if (flow >= target) status = FlowSolution.Status.TARGET_REACHED;
+        else if (cancelled) status = FlowSolution.Status.CANCELLED;
+        else if (hasDeadline && System.nanoTime() - deadline >= 0) status = FlowSolution.Status.DEADLINE_PASSED;
+        else if (isGapClosed(flow)) status = FlowSolution.Status.GAP_REACHED;
+        else return false;
+        return true;
+    }
+
+    private boolean isGapClosed(long flow) {
+        if (graph == null || gap < 0 && boundsListener == null) return false;
+        long now = System.nanoTime();
+        if (now - nextBound < 0) return false;
+        nextBound = now + boundInterval;
+        long upper = bound(flow).getUpper();
+        return gap >= 0 && upper - flow <= gap * upper;
+    }
+
+    /**
+     * Called by the engines once they are done, with the flow value, graph and cut of the solution set.
+     * Gives the solution the status, and the bounds of the flow left unless it is maximum. Bounds which meet prove
+     * the flow maximum whatever stopped the solve.
+     */
+    public void finish(FlowSolution solution) {
+        solution.setStatus(status);
+        if (solution.isMaximum() || graph == null) return;
+        FlowBounds last = bound(solution.getMaximumFlow());
+        if (last.getUpper() == last.getLower()) {
+            solution.setStatus(FlowSolution.Status.MAXIMUM);
+            return;
+        }
+        solution.setUpperBound(last.getUpper());
+        solution.setSourceCut(last.getCut());
+    }
+
+    /**
+     * Lay the residual graph out by breadth first search from the source, and take the cut after every layer
+     * before the one of the sink, or the reachable vertices if the sink is not reached. An arc with capacity
+     * crosses the cuts from the layer of its tail up to the one before its head, which a difference array over the
+     * layers sums in one pass. Keeps the cheapest cut found so far.
+     * @param lower - the flow value found so far.
+     */
+    private FlowBounds bound(long lower) {
+        int n = graph.size();
+        if (distance == null || distance.length != n) {
+            distance = new int[n];
+            queue = new int[n];
+            crossing = new long[n + 1];
+        }
+        Arrays.fill(distance, -1);
+        distance[source] = 0;
+        int first = 0, last = 0;
+        queue[last++] = source;
+        while (first < last) {
+            int vertex = queue[first++];
+            if (distance[sink] != -1 && distance[vertex] >= distance[sink]) break;
+            for (int arc = graph.firstArc(vertex); arc < graph.lastArc(vertex); arc++) {
+                int to = graph.getHead(arc);
+                if (distance[to] != -1 || graph.residualFlow(arc) <= 0) continue;
+                distance[to] = distance[vertex] + 1;
+                queue[last++] = to;
+            }
+        }
+        int layers = distance[sink] != -1 ? distance[sink] : distance[queue[last - 1]] + 1;
+
+        Arrays.fill(crossing, 0, layers + 1, 0);
+        for (int i = 0; i < last; i++) {
+            int vertex = queue[i];
+            if (distance[vertex] >= layers) continue;
+            for (int arc = graph.firstArc(vertex); arc < graph.lastArc(vertex); arc++) {
+                long capacity = graph.getCapacity(arc);
+                int to = distance[graph.getHead(arc)];
+                if (to == -1 || to > layers) to = layers;
+                if (capacity <= 0 || to <= distance[vertex]) continue;
+                crossing[distance[vertex]] += capacity;
+                crossing[to] -= capacity;
+            }
+        }
+        long upper = Long.MAX_VALUE, sum = 0;
+        int best = -1;
+        for (int k = 0; k < layers; k++) {
+            sum += crossing[k];
+            if (sum < upper) {
+                upper = sum;
+                best = k;
+            }
+        }
+
+        if (bounds == null || upper < bounds.getUpper()) {
+            List<Vertex> cut = new ArrayList<>();
+            for (int vertex = 0; vertex < n; vertex++)
+                if (vertex != source && distance[vertex] != -1 && distance[vertex] <= best) cut.add(new Vertex(vertex));
+            bounds = new FlowBounds(lower, upper, cut);
+        } else {
+            bounds = new FlowBounds(lower, bounds.getUpper(), bounds.getCut());
+        }
+        if (boundsListener != null) boundsListener.accept(bounds);
+        return bounds;
+    }
+
+    /**
+     * Hand the flow value to the progress callback, if it changed since the last one.
+     */
+    public void report(long flow) {
+        if (progress != null && flow != reported) {
+            reported = flow;
+            progress.accept(flow);
+        }
+    }
+
+    /**
+     * @return why the solve stopped, MAXIMUM if no check stopped it.
+     */
+    public FlowSolution.Status getStatus() {
+        return status;
+    }
+
+    private void checkChangeable() {
+        if (this == NONE) throw new IllegalStateException("The default control can not be changed");
+    }
+}
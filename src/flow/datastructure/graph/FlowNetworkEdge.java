@@ -8,6 +8,7 @@ public class FlowNetworkEdge<Vertex, Capacity> extends CapacityEdge<Vertex, Capa
     private FlowNetworkEdge<Vertex, Capacity> reverse;
     private Vertex to;
     private Vertex from;
+    private long cost;
 
     public FlowNetworkEdge(Vertex to, Vertex from) {
         this.to = to;
@@ -53,6 +54,17 @@ public class FlowNetworkEdge<Vertex, Capacity> extends CapacityEdge<Vertex, Capa
         return flowstatus.getFlow();
     }
 
+    /**
+     * @return the cost of sending one unit of flow through the edge, 0 unless set.
+     */
+    public long getCost() {
+        return cost;
+    }
+
+    public void setCost(long cost) {
+        this.cost = cost;
+    }
+
     public Integer residualFlow() { return (Integer)getCapacity()-(Integer)getFlow();}
 
     @Override
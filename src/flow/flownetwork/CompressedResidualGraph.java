@@ -0,0 +1,718 @@
+package flow.flownetwork;
+
+import flow.datastructure.graph.FlowNetworkEdge;
+import flow.datastructure.graph.Vertex;
+import flow.metrics.Metrics;
+import flow.metrics.Metrics.Phase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Residual graph stored in compressed sparse row form.
+ * Every edge (u -> v) is stored as two arcs, the forward arc (u -> v) with the capacity of the edge and the
+ * paired reverse arc (v -> u) with capacity 0. The arcs of vertex u are found in [firstArc(u), lastArc(u)),
+ * forward arcs first, in the same order FlowGraph would have created its out edges.
+ * Flow is skew symmetric, pushing flow along an arc removes the same amount from its reverse arc.
+ * Vertex 0 is the artificial source, vertex n+1 the artificial sink and 1..n the internal vertices.
+ * When the edges carry costs, the forward arc has the cost of its edge and the reverse arc the negated cost,
+ * the arcs of the artificial source and sink cost nothing.
+ */
+public class CompressedResidualGraph implements FlowNetwork {
+    private int source, sink;
+    private int numberOfVertices;
+    private int[] offset;
+    private int[] head;
+    private int[] reverse;
+    private long[] capacity;
+    private long[] flow;
+    private long[] cost;
+    private long[] imbalance;
+    private long contentHash;
+    private boolean hashed;
+    private boolean immutable;
+    private Metrics metrics = Metrics.DISABLED;
+
+    /**
+     * @param metrics - receives the time spent verifying the edges, attaching the terminals and laying out the arcs.
+     */
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Construct the arcs of the graph from the two-dimensional array, attach the artificial source to every
+     * vertex without in edges and every vertex without out edges to the artificial sink.
+     * Capacities of the artificial edges are the sum of the out(source) or in(sink) capacities as in FlowGraph.
+     * @param graph - the graph draw as a double array, graph[from][to] = capacity.
+     */
+    public void createGraph(int[][] graph) {
+        EdgeList edges = new EdgeList(graph.length);
+        for (int i = 0; i < graph.length; i++) {
+            for (int j = 0; j < graph.length; j++) {
+                if (graph[i][j] == 0) continue;
+                edges.addEdge(i + 1, j + 1, graph[i][j]);
+            }
+        }
+        createGraph(graph.length, edges);
+    }
+
+    /**
+     * Construct the arcs from the internal edges of an already created FlowGraph, leaving out its artificial
+     * source and sink edges which are attached again by the same rule.
+     * @param graph - the flow graph to copy the structure and capacities from.
+     */
+    public void createGraph(FlowGraph graph) {
+        EdgeList edges = new EdgeList(graph.getVertices().stream()
+                                                         .mapToInt(Vertex::getOutdegree)
+                                                         .sum());
+        for (Vertex vertex : graph.getVertices()) {
+            for (FlowNetworkEdge<?, ?> edge : vertex.getOutEdges()) {
+                if (edge.getTo() == graph.getSink()) continue;
+                edges.addEdge(vertex.getVertex(), ((Vertex) edge.getTo()).getVertex(), (Integer) edge.getCapacity(),
+                              edge.getCost());
+            }
+        }
+        createGraph(graph.getVertices().size(), edges);
+    }
+
+    /**
+     * Construct the graph from a list of edges between internal vertices, attaching the artificial source to every
+     * vertex without in edges and every vertex without out edges to the artificial sink.
+     * @param n - the number of internal vertices, numbered 1..n.
+     * @param edges - the edges of the graph.
+     */
+    public void createGraph(int n, EdgeList edges) {
+        int[] indegree = new int[n + 2];
+        int[] outdegree = new int[n + 2];
+        long[] in = new long[n + 2];
+        long[] out = new long[n + 2];
+        verifyEdges(n, edges, indegree, outdegree, in, out);
+
+        EdgeList terminals;
+        Metrics.Timer timer = metrics.start(Phase.TERMINALS);
+        try {
+            terminals = terminalEdges(n, indegree, outdegree, in, out);
+        } finally {
+            timer.close();
+        }
+        createArcs(n, edges, terminals);
+    }
+
+    /**
+     * The terminal edges of the rule FlowGraph follows: the artificial source feeds every vertex without in edges
+     * the capacity of its out edges, in ascending order, and every vertex without out edges drains the capacity of
+     * its in edges into the artificial sink, in ascending order.
+     * @param n - the number of internal vertices, numbered 1..n, the artificial sink is n+1.
+     * @param indegree - the number of in edges of every vertex.
+     * @param outdegree - the number of out edges of every vertex.
+     * @param in - the capacity into every vertex.
+     * @param out - the capacity out of every vertex.
+     * @return the edges out of the artificial source followed by the edges into the artificial sink.
+     */
+    static EdgeList terminalEdges(int n, int[] indegree, int[] outdegree, long[] in, long[] out) {
+        boolean hasSource = false, hasSink = false;
+        for (int v = 1; v <= n; v++) {
+            if (indegree[v] == 0) hasSource = true;
+            if (outdegree[v] == 0) hasSink = true;
+        }
+        if (!hasSink && !hasSource) throw new IllegalArgumentException("No source or sink found");
+
+        EdgeList terminals = new EdgeList();
+        for (int v = 1; v <= n; v++)
+            if (indegree[v] == 0) terminals.addEdge(0, v, out[v]);
+        for (int v = 1; v <= n; v++)
+            if (outdegree[v] == 0) terminals.addEdge(v, n + 1, in[v]);
+        return terminals;
+    }
+
+    /**
+     * Construct the graph from a list of edges with designated terminals, as in the DIMACS format.
+     * The artificial source only feeds the given source and the artificial sink only drains the given sink,
+     * so the maximum flow is the one between the two designated vertices.
+     * @param n - the number of internal vertices, numbered 1..n.
+     * @param edges - the edges of the graph.
+     * @param from - the designated source.
+     * @param to - the designated sink.
+     */
+    public void createGraph(int n, EdgeList edges, int from, int to) {
+        if (from < 1 || from > n || to < 1 || to > n || from == to)
+            throw new IllegalArgumentException("Source " + from + " and sink " + to + " are not distinct vertices of the graph");
+        int[] indegree = new int[n + 2];
+        int[] outdegree = new int[n + 2];
+        long[] in = new long[n + 2];
+        long[] out = new long[n + 2];
+        verifyEdges(n, edges, indegree, outdegree, in, out);
+
+        EdgeList terminals = new EdgeList(2);
+        terminals.addEdge(0, from, out[from]);
+        terminals.addEdge(to, n + 1, in[to]);
+        createArcs(n, edges, terminals);
+    }
+
+    /**
+     * Construct the graph with the edges of the artificial source and sink given, no terminal is attached by rule.
+     * @param n - the number of internal vertices, numbered 1..n, the artificial source is 0 and the sink n+1.
+     * @param edges - the edges between internal vertices.
+     * @param terminals - the edges out of the artificial source and into the artificial sink.
+     * @return the forward arc of every edge, the internal edges followed by the terminal edges.
+     */
+    public int[] createGraph(int n, EdgeList edges, EdgeList terminals) {
+        verifyEdges(n, edges, new int[n + 2], new int[n + 2], new long[n + 2], new long[n + 2]);
+        for (int e = 0; e < terminals.size; e++) {
+            int from = terminals.from[e], to = terminals.to[e];
+            if (from != 0 && to != n + 1 || from < 0 || from > n || to < 1 || to > n + 1 || terminals.capacity[e] < 0)
+                throw new IllegalArgumentException("Edge " + from + " -> " + to + " is not a terminal edge");
+        }
+        return createArcs(n, edges, terminals);
+    }
+
+    /**
+     * Construct the graph from edges and terminal edges already checked while they were added, by FlowGraphBuilder.
+     * The graph is immutable afterwards, only its flow changes.
+     */
+    void createCheckedGraph(int n, EdgeList edges, EdgeList terminals) {
+        createArcs(n, edges, terminals);
+        immutable = true;
+    }
+
+    /**
+     * @return true - if the arcs and capacities can no longer be changed, as for a graph from FlowGraphBuilder.
+     */
+    public boolean isImmutable() {
+        return immutable;
+    }
+
+    private void checkMutable() {
+        if (immutable) throw new IllegalStateException("The graph is immutable, only its flow can change");
+    }
+
+    /**
+     * Construct an undirected graph, without artificial terminals. Each edge {from, to} becomes a pair of arcs
+     * that both carry its capacity, so flow may cross the edge in either direction. Maximum flows are taken
+     * between internal vertices, the artificial source and sink are left without arcs.
+     * The arcs are not meant for setCapacity, which expects the reverse arc of an edge to have no capacity,
+     * and costs are ignored.
+     * @param n - the number of internal vertices, numbered 1..n.
+     * @param edges - the edges of the graph, parallel edges add up.
+     */
+    public void createUndirectedGraph(int n, EdgeList edges) {
+        verifyEdges(n, edges, new int[n + 2], new int[n + 2], new long[n + 2], new long[n + 2]);
+        int[] forward = createArcs(n, edges, new EdgeList(0));
+        for (int e = 0; e < edges.size; e++)
+            capacity[reverse[forward[e]]] = edges.capacity[e];
+        cost = null;
+        hashed = false;
+    }
+
+    /**
+     * @return a graph sharing the arcs and capacities of this one, with its own flow starting at zero.
+     * Several threads may each solve their own copy, as long as no capacity is changed meanwhile.
+     */
+    public CompressedResidualGraph copyTopology() {
+        CompressedResidualGraph copy = new CompressedResidualGraph();
+        copy.createGraph(numberOfVertices, offset, head, reverse, capacity, null);
+        copy.cost = cost;
+        copy.immutable = immutable;
+        return copy;
+    }
+
+    /**
+     * Adopt arrays already laid out as a compressed residual graph, as stored in a snapshot.
+     * No construction or verification is done, the arrays must come from an earlier graph.
+     * @param n - the number of internal vertices.
+     * @param offset - arcs of vertex v are offset[v]..offset[v+1]-1, length n+3.
+     * @param head - head of every arc.
+     * @param reverse - the paired reverse arc of every arc.
+     * @param capacity - capacity of every arc.
+     * @param flow - flow of every arc, null for zero flow.
+     */
+    public void createGraph(int n, int[] offset, int[] head, int[] reverse, long[] capacity, long[] flow) {
+        if (offset.length != n + 3 || head.length != offset[n + 2] || reverse.length != head.length
+                || capacity.length != head.length || flow != null && flow.length != head.length)
+            throw new IllegalArgumentException("Arrays do not describe a graph of " + n + " vertices");
+        checkMutable();
+        numberOfVertices = n;
+        source = 0;
+        sink = n + 1;
+        this.offset = offset;
+        this.head = head;
+        this.reverse = reverse;
+        this.capacity = capacity;
+        this.flow = flow != null ? flow : new long[head.length];
+        cost = null;
+        imbalance = null;
+        hashed = false;
+    }
+
+    /**
+     * Adopt the costs of every arc, as stored in a snapshot.
+     * @param cost - cost of every arc, the reverse arc holding the negated cost of its pair, null for no costs.
+     */
+    public void setCosts(long[] cost) {
+        if (cost != null && cost.length != head.length)
+            throw new IllegalArgumentException("Costs do not match the " + head.length + " arcs of the graph");
+        checkMutable();
+        this.cost = cost;
+        hashed = false;
+    }
+
+    /**
+     * Check every edge lies within the graph with a non-negative capacity, while counting degrees and capacities.
+     */
+    private void verifyEdges(int n, EdgeList edges, int[] indegree, int[] outdegree, long[] in, long[] out) {
+        Metrics.Timer timer = metrics.start(Phase.VERIFY);
+        try {
+            countEdges(n, edges, indegree, outdegree, in, out);
+        } finally {
+            timer.close();
+        }
+    }
+
+    private void countEdges(int n, EdgeList edges, int[] indegree, int[] outdegree, long[] in, long[] out) {
+        for (int e = 0; e < edges.size; e++) {
+            int from = edges.from[e], to = edges.to[e];
+            if (edges.capacity[e] < 0)
+                throw new IllegalArgumentException("Negative capacity on edge " + from + " -> " + to);
+            if (from < 1 || from > n || to < 1 || to > n)
+                throw new IllegalArgumentException("Edge " + from + " -> " + to + " is outside the graph");
+            outdegree[from]++;
+            indegree[to]++;
+            out[from] += edges.capacity[e];
+            in[to] += edges.capacity[e];
+        }
+    }
+
+    /**
+     * Lay out the forward and reverse arc of every edge with a counting sort on the tail of the arc.
+     * Forward arcs are placed before reverse arcs, both keeping the order of the internal edges followed by
+     * the terminal edges.
+     * @return the forward arc of every edge, in edge order.
+     */
+    private int[] createArcs(int n, EdgeList edges, EdgeList terminals) {
+        checkMutable();
+        Metrics.Timer timer = metrics.start(Phase.CONSTRUCTION);
+        try {
+            return layArcs(n, edges, terminals);
+        } finally {
+            timer.close();
+        }
+    }
+
+    private int[] layArcs(int n, EdgeList edges, EdgeList terminals) {
+        numberOfVertices = n;
+        source = 0;
+        sink = n + 1;
+        int vertices = n + 2;
+        int m = edges.size + terminals.size;
+
+        offset = new int[vertices + 1];
+        for (EdgeList list : new EdgeList[] { edges, terminals }) {
+            for (int e = 0; e < list.size; e++) {
+                offset[list.from[e] + 1]++;
+                offset[list.to[e] + 1]++;
+            }
+        }
+        for (int v = 0; v < vertices; v++)
+            offset[v + 1] += offset[v];
+
+        int[] position = Arrays.copyOf(offset, vertices);
+        head = new int[2 * m];
+        reverse = new int[2 * m];
+        capacity = new long[2 * m];
+        flow = new long[2 * m];
+        cost = edges.hasCosts() ? new long[2 * m] : null;
+
+        int[] forward = new int[m];
+        int edge = 0;
+        for (EdgeList list : new EdgeList[] { edges, terminals }) {
+            for (int e = 0; e < list.size; e++, edge++) {
+                int arc = position[list.from[e]]++;
+                head[arc] = list.to[e];
+                capacity[arc] = list.capacity[e];
+                if (cost != null) cost[arc] = list.getCost(e);
+                forward[edge] = arc;
+            }
+        }
+        edge = 0;
+        for (EdgeList list : new EdgeList[] { edges, terminals }) {
+            for (int e = 0; e < list.size; e++, edge++) {
+                int arc = position[list.to[e]]++;
+                head[arc] = list.from[e];
+                reverse[arc] = forward[edge];
+                reverse[forward[edge]] = arc;
+                if (cost != null) cost[arc] = -cost[forward[edge]];
+            }
+        }
+        imbalance = null;
+        contentHash = EdgeList.mix(EdgeList.mix(EdgeList.mix(n, edges.hash), terminals.hash), terminals.size);
+        hashed = true;
+        return forward;
+    }
+
+    /**
+     * Hash of the vertices, edges, capacities and costs of the graph, not of its flow. A graph built from a list
+     * of edges gets the hash of the list, kept while it was parsed. Graphs adopted from arrays or changed since
+     * are hashed from their arcs once asked, so the same graph read from a snapshot hashes differently.
+     * @return the content hash, equal for graphs built from the same edges in the same order.
+     */
+    public long getContentHash() {
+        if (!hashed) {
+            long hash = EdgeList.mix(numberOfVertices, -1);
+            for (int v = 0; v <= size(); v++) hash = EdgeList.mix(hash, offset[v]);
+            for (int arc = 0; arc < head.length; arc++)
+                hash = EdgeList.mix(EdgeList.mix(EdgeList.mix(hash, head[arc]), capacity[arc]), getCost(arc));
+            contentHash = hash;
+            hashed = true;
+        }
+        return contentHash;
+    }
+
+    /**
+     * Push flow along an arc, and take it back from the paired reverse arc.
+     * @param arc - the arc to augment.
+     * @param amount - amount of flow, at most residualFlow(arc).
+     */
+    public void augment(int arc, long amount) {
+        flow[arc] += amount;
+        flow[reverse[arc]] -= amount;
+    }
+
+    /**
+     * Reset every arc to zero flow, keeping the structure and capacities.
+     */
+    public void resetFlow() {
+        Arrays.fill(flow, 0);
+        imbalance = null;
+    }
+
+    /**
+     * Find the arc carrying the capacity of the edge (from -> to). The reverse arc of an edge (to -> from) does
+     * not count, but an arc whose pair has no capacity in either direction does, as it can take the edge over.
+     * @return the arc, -1 if the graph has no such arc.
+     */
+    public int findArc(int from, int to) {
+        for (int arc = offset[from]; arc < offset[from + 1]; arc++)
+            if (head[arc] == to && capacity[reverse[arc]] == 0) return arc;
+        return -1;
+    }
+
+    /**
+     * @return the capacity of the edge (from -> to), 0 if there is none.
+     */
+    public long getCapacity(int from, int to) {
+        int arc = findArc(from, to);
+        return arc == -1 ? 0 : capacity[arc];
+    }
+
+    /**
+     * Change the capacity of the edge (from -> to) on a graph which may already carry a flow, adding the edge
+     * if it does not exist. The artificial source and sink stay attached to the vertices they were attached to
+     * when the graph was created, their arcs following the total capacity of the edges they feed or drain.
+     * Flow above a lowered capacity is taken off the arc and recorded as imbalance at its ends, to be routed
+     * away before solving again.
+     * Changing an edge which has arcs is O(degree). Adding an edge without arcs lays every arc out again in O(V + E),
+     * so several new edges are better added together with setCapacities, which lays the arcs out once.
+     * @param from - tail of the edge (1..n).
+     * @param to - head of the edge (1..n).
+     * @param capacity - the new capacity, 0 removes the edge.
+     */
+    public void setCapacity(int from, int to, long capacity) {
+        checkUpdate(from, to, capacity);
+        int arc = findArc(from, to);
+        if (arc == -1) {
+            if (capacity == 0) return;
+            EdgeList added = new EdgeList(1);
+            added.addEdge(from, to, 0);
+            addArcs(added);
+            arc = findArc(from, to);
+        }
+        changeCapacity(from, to, arc, capacity);
+    }
+
+    /**
+     * Change the capacities of several edges as setCapacity does, laying the arcs out at most once for all the
+     * edges which have none yet.
+     * @param updates - the edges with their new capacities, applied in order.
+     */
+    public void setCapacities(EdgeList updates) {
+        for (int e = 0; e < updates.size; e++)
+            checkUpdate(updates.from[e], updates.to[e], updates.capacity[e]);
+
+        EdgeList added = new EdgeList();
+        Set<Long> pairs = new HashSet<>();
+        for (int e = 0; e < updates.size; e++) {
+            int from = updates.from[e], to = updates.to[e];
+            if (updates.capacity[e] > 0 && findArc(from, to) == -1 && pairs.add((long) from << 32 | to))
+                added.addEdge(from, to, 0);
+        }
+        if (added.size > 0) addArcs(added);
+
+        for (int e = 0; e < updates.size; e++) {
+            int from = updates.from[e], to = updates.to[e];
+            int arc = findArc(from, to);
+            if (arc != -1) changeCapacity(from, to, arc, updates.capacity[e]);
+        }
+    }
+
+    private void checkUpdate(int from, int to, long capacity) {
+        checkMutable();
+        if (capacity < 0)
+            throw new IllegalArgumentException("Negative capacity on edge " + from + " -> " + to);
+        if (from < 1 || from > numberOfVertices || to < 1 || to > numberOfVertices)
+            throw new IllegalArgumentException("Edge " + from + " -> " + to + " is outside the graph");
+    }
+
+    /**
+     * Set the capacity of the arc of (from -> to), letting the terminal arcs of its ends follow.
+     */
+    private void changeCapacity(int from, int to, int arc, long capacity) {
+        long delta = capacity - this.capacity[arc];
+        updateCapacity(arc, capacity);
+
+        int sourceArc = findArc(source, from);
+        if (sourceArc != -1) updateCapacity(sourceArc, Math.max(0, this.capacity[sourceArc] + delta));
+        int sinkArc = findArc(to, sink);
+        if (sinkArc != -1) updateCapacity(sinkArc, Math.max(0, this.capacity[sinkArc] + delta));
+    }
+
+    /**
+     * Raise the capacity of the edge (from -> to), adding it if it does not exist.
+     */
+    public void addEdge(int from, int to, long capacity) {
+        setCapacity(from, to, getCapacity(from, to) + capacity);
+    }
+
+    /**
+     * Remove the edge (from -> to), leaving its arcs in place with no capacity.
+     */
+    public void removeEdge(int from, int to) {
+        setCapacity(from, to, 0);
+    }
+
+    private void updateCapacity(int arc, long capacity) {
+        this.capacity[arc] = capacity;
+        hashed = false;
+        long excess = flow[arc] - capacity;
+        if (excess <= 0) return;
+
+        if (imbalance == null) imbalance = new long[size()];
+        augment(arc, -excess);
+        imbalance[getTail(arc)] += excess;
+        imbalance[head[arc]] -= excess;
+    }
+
+    /**
+     * Lay the arcs out again with the zero capacity edges added, keeping every flow.
+     */
+    private void addArcs(EdgeList added) {
+        EdgeList edges = new EdgeList(head.length / 2 + added.size);
+        EdgeList none = new EdgeList(1);
+        long[] flows = new long[head.length / 2 + added.size];
+        for (int v = 0; v < size(); v++) {
+            for (int arc = offset[v]; arc < offset[v + 1]; arc++) {
+                int pair = reverse[arc];
+                if (capacity[arc] > 0 || capacity[pair] == 0 && arc < pair) {
+                    flows[edges.size()] = flow[arc];
+                    edges.addEdge(v, head[arc], capacity[arc], getCost(arc));
+                }
+            }
+        }
+        for (int e = 0; e < added.size; e++)
+            edges.addEdge(added.from[e], added.to[e], 0);
+
+        long[] imbalance = this.imbalance;
+        int[] forward = createArcs(numberOfVertices, edges, none);
+        for (int e = 0; e < edges.size(); e++)
+            augment(forward[e], flows[e]);
+        this.imbalance = imbalance;
+    }
+
+    /**
+     * @param vertex - the vertex.
+     * @return flow in minus flow out left over from lowered capacities, positive for a surplus.
+     */
+    public long getImbalance(int vertex) {
+        return imbalance == null ? 0 : imbalance[vertex];
+    }
+
+    /**
+     * @return true - if every vertex conserves flow, else false.
+     */
+    public boolean isBalanced() {
+        if (imbalance == null) return true;
+        for (int v = 1; v <= numberOfVertices; v++)
+            if (imbalance[v] != 0) return false;
+        return true;
+    }
+
+    /**
+     * Record flow routed away from a vertex with a surplus, or into a vertex with a deficit.
+     * @param vertex - the vertex.
+     * @param amount - flow moved, positive when sent out of the vertex.
+     */
+    public void settleImbalance(int vertex, long amount) {
+        imbalance[vertex] -= amount;
+    }
+
+    /**
+     * @return the total flow leaving the artificial source.
+     */
+    public long getFlowValue() {
+        return getFlowValue(source);
+    }
+
+    /**
+     * @param vertex - any vertex, taken as the source of the flow.
+     * @return the net flow out of the vertex.
+     */
+    public long getFlowValue(int vertex) {
+        long value = 0;
+        for (int arc = offset[vertex]; arc < offset[vertex + 1]; arc++)
+            value += flow[arc];
+        return value;
+    }
+
+    /**
+     * Collect the vertices reachable from the source through arcs with residual capacity left.
+     * At maximum flow these form the source side of a minimum cut.
+     * @return the reachable vertices except the source, sorted by id.
+     */
+    public List<Vertex> getSourceCut() {
+        return getSourceCut(source);
+    }
+
+    /**
+     * @param from - any vertex, taken as the source of the flow.
+     * @return the vertices reachable from it through arcs with residual capacity left, except itself, sorted by id.
+     */
+    public List<Vertex> getSourceCut(int from) {
+        boolean[] visited = new boolean[size()];
+        int[] queue = new int[size()];
+        int first = 0, last = 0;
+        queue[last++] = from;
+        visited[from] = true;
+        while (first < last) {
+            int vertex = queue[first++];
+            for (int arc = offset[vertex]; arc < offset[vertex + 1]; arc++) {
+                if (visited[head[arc]] || residualFlow(arc) <= 0) continue;
+                visited[head[arc]] = true;
+                queue[last++] = head[arc];
+            }
+        }
+
+        List<Vertex> cut = new ArrayList<>();
+        for (int vertex = 0; vertex < size(); vertex++)
+            if (visited[vertex] && vertex != from) cut.add(new Vertex(vertex));
+        return cut;
+    }
+
+    public long residualFlow(int arc) {
+        return capacity[arc] - flow[arc];
+    }
+
+    public int firstArc(int vertex) {
+        return offset[vertex];
+    }
+
+    public int lastArc(int vertex) {
+        return offset[vertex + 1];
+    }
+
+    public int getHead(int arc) {
+        return head[arc];
+    }
+
+    public int getTail(int arc) {
+        return head[reverse[arc]];
+    }
+
+    public int getReverse(int arc) {
+        return reverse[arc];
+    }
+
+    public long getCapacity(int arc) {
+        return capacity[arc];
+    }
+
+    /**
+     * @return the cost of one unit of flow along the arc, 0 if the graph has no costs.
+     */
+    public long getCost(int arc) {
+        return cost == null ? 0 : cost[arc];
+    }
+
+    /**
+     * @return true - if the arcs carry costs, else false.
+     */
+    public boolean hasCosts() {
+        return cost != null;
+    }
+
+    /**
+     * @return the total cost of the flow, summed over the arcs carrying positive flow.
+     */
+    public long getFlowCost() {
+        long total = 0;
+        if (cost == null) return total;
+        for (int arc = 0; arc < flow.length; arc++)
+            if (flow[arc] > 0) total += flow[arc] * cost[arc];
+        return total;
+    }
+
+    public long getFlow(int arc) {
+        return flow[arc];
+    }
+
+    /**
+     * @return the number of arcs, twice the number of edges.
+     */
+    public int getNumberOfArcs() {
+        return head.length;
+    }
+
+    /**
+     * @return the number of vertices including the artificial source and sink.
+     */
+    public int size() {
+        return numberOfVertices + 2;
+    }
+
+    public int getSource() {
+        return source;
+    }
+
+    public int getSink() {
+        return sink;
+    }
+
+    @Override
+    public int getNumberOfVertices() {
+        return numberOfVertices;
+    }
+
+    @Override
+    public void flowRow(int vertex, long[] row) {
+        Arrays.fill(row, 0);
+        for (int arc = offset[vertex]; arc < offset[vertex + 1]; arc++) {
+            if (flow[arc] <= 0 || head[arc] == sink || head[arc] == source) continue;
+            row[head[arc] - 1] += flow[arc];
+        }
+    }
+
+    @Override
+    public void forEachFlow(int vertex, FlowVisitor visitor) {
+        for (int arc = offset[vertex]; arc < offset[vertex + 1]; arc++) {
+            if (flow[arc] <= 0 || head[arc] == sink || head[arc] == source) continue;
+            visitor.visit(vertex, head[arc], flow[arc]);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return formatFlow();
+    }
+}
@@ -0,0 +1,244 @@
+package flow.flownetwork;
+
+import flow.datastructure.graph.Vertex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Residual graph stored as flat row-major matrices, for graphs where most pairs of vertices have an edge.
+ * Vertex 0 is the artificial source, vertex n+1 the artificial sink and 1..n the internal vertices, as in
+ * CompressedResidualGraph. Entry u*size()+v holds the capacity and the flow of the edge (u -> v), parallel edges
+ * add up. Two bitsets per row tell which pairs the residual graph connects: bit v of the forward row of u is set
+ * while the edge (u -> v) has capacity left, bit v of the backward row of u while the edge (v -> u) carries flow
+ * that can be pushed back. Searches scan the rows a word of 64 vertices at a time.
+ */
+public class DenseResidualGraph implements FlowNetwork {
+    private int numberOfVertices;
+    private int size;
+    private int words;
+    private long[] capacity;
+    private long[] flow;
+    private long[] forward;
+    private long[] backward;
+
+    /**
+     * Construct the graph from the two-dimensional array, attaching the artificial source and sink by the same
+     * rule as FlowGraph and CompressedResidualGraph.
+     * @param graph - the graph draw as a double array, graph[from][to] = capacity.
+     */
+    public void createGraph(int[][] graph) {
+        int n = graph.length;
+        allocate(n);
+        int[] indegree = new int[n + 2];
+        int[] outdegree = new int[n + 2];
+        long[] in = new long[n + 2];
+        long[] out = new long[n + 2];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (graph[i][j] == 0) continue;
+                if (graph[i][j] < 0)
+                    throw new IllegalArgumentException("Negative capacity on edge " + (i + 1) + " -> " + (j + 1));
+                capacity[(i + 1) * size + j + 1] = graph[i][j];
+                outdegree[i + 1]++;
+                indegree[j + 1]++;
+                out[i + 1] += graph[i][j];
+                in[j + 1] += graph[i][j];
+            }
+        }
+
+        EdgeList terminals = CompressedResidualGraph.terminalEdges(n, indegree, outdegree, in, out);
+        for (int e = 0; e < terminals.size; e++)
+            capacity[terminals.from[e] * size + terminals.to[e]] = terminals.capacity[e];
+        createBits();
+    }
+
+    /**
+     * Construct the graph from the arcs of a compressed residual graph, keeping the flow it holds.
+     * Parallel edges are merged into one, so their flow is only split again by writeFlow.
+     * @param graph - a directed graph, undirected graphs have no dense form.
+     */
+    public void createGraph(CompressedResidualGraph graph) {
+        allocate(graph.getNumberOfVertices());
+        for (int u = 0; u < size; u++) {
+            for (int arc = graph.firstArc(u); arc < graph.lastArc(u); arc++) {
+                if (graph.getCapacity(arc) == 0) continue;
+                if (graph.getCapacity(graph.getReverse(arc)) > 0)
+                    throw new IllegalArgumentException("Undirected graphs have no dense form");
+                int index = u * size + graph.getHead(arc);
+                capacity[index] += graph.getCapacity(arc);
+                flow[index] += graph.getFlow(arc);
+            }
+        }
+        createBits();
+    }
+
+    private void allocate(int n) {
+        long entries = (long) (n + 2) * (n + 2);
+        if (entries > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("A dense graph of " + n + " vertices does not fit in an array");
+        numberOfVertices = n;
+        size = n + 2;
+        words = (size + 63) >>> 6;
+        capacity = new long[(int) entries];
+        flow = new long[(int) entries];
+        forward = new long[size * words];
+        backward = new long[size * words];
+    }
+
+    private void createBits() {
+        for (int u = 0; u < size; u++)
+            for (int v = 0; v < size; v++)
+                updateBits(u, v);
+    }
+
+    /**
+     * Set the bits of the pair from the capacity and flow of the edge (u -> v), without branching on them.
+     */
+    private void updateBits(int u, int v) {
+        int index = u * size + v;
+        long residual = capacity[index] - flow[index];
+        long forwardMask = 1L << v, backwardMask = 1L << u;
+        int forwardWord = u * words + (v >>> 6), backwardWord = v * words + (u >>> 6);
+        forward[forwardWord] = forward[forwardWord] & ~forwardMask | forwardMask & -(residual > 0 ? 1L : 0L);
+        backward[backwardWord] = backward[backwardWord] & ~backwardMask | backwardMask & -(flow[index] > 0 ? 1L : 0L);
+    }
+
+    /**
+     * Push flow through the edge (u -> v), a negative amount pushes flow of the edge back.
+     */
+    public void augment(int u, int v, long amount) {
+        flow[u * size + v] += amount;
+        updateBits(u, v);
+    }
+
+    /**
+     * Write the flow into the graph it was created from, splitting the flow of merged edges over the parallel
+     * arcs in arc order. The flow held by this graph is used up.
+     */
+    public void writeFlow(CompressedResidualGraph graph) {
+        graph.resetFlow();
+        for (int u = 0; u < size; u++) {
+            for (int arc = graph.firstArc(u); arc < graph.lastArc(u); arc++) {
+                if (graph.getCapacity(arc) == 0) continue;
+                int index = u * size + graph.getHead(arc);
+                long amount = Math.min(flow[index], graph.getCapacity(arc));
+                if (amount <= 0) continue;
+                graph.augment(arc, amount);
+                flow[index] -= amount;
+            }
+        }
+    }
+
+    /**
+     * @return the residual capacity of the edge (u -> v).
+     */
+    public long residualFlow(int u, int v) {
+        return capacity[u * size + v] - flow[u * size + v];
+    }
+
+    public long getCapacity(int u, int v) {
+        return capacity[u * size + v];
+    }
+
+    public long getFlow(int u, int v) {
+        return flow[u * size + v];
+    }
+
+    /**
+     * @return the forward bitsets, words() words per row.
+     */
+    public long[] getForwardBits() {
+        return forward;
+    }
+
+    /**
+     * @return the backward bitsets, words() words per row.
+     */
+    public long[] getBackwardBits() {
+        return backward;
+    }
+
+    /**
+     * @return the number of 64 bit words in a row of a bitset.
+     */
+    public int words() {
+        return words;
+    }
+
+    /**
+     * @return the total flow leaving the artificial source.
+     */
+    public long getFlowValue() {
+        long value = 0;
+        for (int v = 0; v < size; v++) value += flow[v];
+        return value;
+    }
+
+    /**
+     * Find the vertices reachable from the artificial source in the residual graph, the source side of a
+     * minimum cut once the flow is maximum.
+     * @return the reachable vertices except the source, sorted by id.
+     */
+    public List<Vertex> getSourceCut() {
+        long[] unvisited = new long[words];
+        Arrays.fill(unvisited, -1L);
+        unvisited[0] &= ~1L;
+        int[] queue = new int[size];
+        int first = 0, last = 0;
+        queue[last++] = 0;
+        while (first < last) {
+            int base = queue[first++] * words;
+            for (int w = 0; w < words; w++) {
+                long next = (forward[base + w] | backward[base + w]) & unvisited[w];
+                unvisited[w] &= ~next;
+                for (; next != 0; next &= next - 1)
+                    queue[last++] = (w << 6) + Long.numberOfTrailingZeros(next);
+            }
+        }
+
+        List<Vertex> cut = new ArrayList<>();
+        for (int vertex = 1; vertex < size; vertex++)
+            if ((unvisited[vertex >>> 6] & 1L << vertex) == 0) cut.add(new Vertex(vertex));
+        return cut;
+    }
+
+    /**
+     * @return the number of vertices including the artificial source and sink.
+     */
+    public int size() {
+        return size;
+    }
+
+    public int getSource() {
+        return 0;
+    }
+
+    public int getSink() {
+        return numberOfVertices + 1;
+    }
+
+    @Override
+    public int getNumberOfVertices() {
+        return numberOfVertices;
+    }
+
+    @Override
+    public void flowRow(int vertex, long[] row) {
+        System.arraycopy(flow, vertex * size + 1, row, 0, numberOfVertices);
+    }
+
+    @Override
+    public void forEachFlow(int vertex, FlowVisitor visitor) {
+        for (int v = 1; v <= numberOfVertices; v++) {
+            long amount = flow[vertex * size + v];
+            if (amount > 0) visitor.visit(vertex, v, amount);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return formatFlow();
+    }
+}
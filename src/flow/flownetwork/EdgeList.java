@@ -0,0 +1,104 @@
+package flow.flownetwork;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of edges kept in primitive arrays, used to stream edges into a CompressedResidualGraph
+ * without going through a dense matrix or an object per edge.
+ * Costs per unit of flow are only stored once an edge with a non-zero cost is added.
+ * A hash of the edges is kept up to date as they are added, so the content of a graph is hashed while it is parsed.
+ */
+public class EdgeList {
+    int[] from;
+    int[] to;
+    long[] capacity;
+    long[] cost;
+    int size;
+    long hash;
+
+    public EdgeList() {
+        this(16);
+    }
+
+    public EdgeList(int expectedEdges) {
+        int length = Math.max(expectedEdges, 1);
+        from = new int[length];
+        to = new int[length];
+        capacity = new long[length];
+    }
+
+    /**
+     * Append the edge (from -> to).
+     * @param from - tail of the edge.
+     * @param to - head of the edge.
+     * @param capacity - upper bound of the flow through the edge.
+     */
+    public void addEdge(int from, int to, long capacity) {
+        addEdge(from, to, capacity, 0);
+    }
+
+    /**
+     * Append the edge (from -> to) with a cost per unit of flow.
+     * @param from - tail of the edge.
+     * @param to - head of the edge.
+     * @param capacity - upper bound of the flow through the edge.
+     * @param cost - cost of sending one unit of flow through the edge.
+     */
+    public void addEdge(int from, int to, long capacity, long cost) {
+        if (size == this.from.length) grow();
+        if (cost != 0 && this.cost == null) this.cost = new long[this.from.length];
+        this.from[size] = from;
+        this.to[size] = to;
+        this.capacity[size] = capacity;
+        if (this.cost != null) this.cost[size] = cost;
+        size++;
+        hash = mix(mix(mix(mix(hash, from), to), capacity), cost);
+    }
+
+    private void grow() {
+        int length = (int) Math.min((long) from.length * 2, Integer.MAX_VALUE - 8);
+        if (length == from.length) throw new IllegalStateException("Too many edges for one list");
+        from = Arrays.copyOf(from, length);
+        to = Arrays.copyOf(to, length);
+        capacity = Arrays.copyOf(capacity, length);
+        if (cost != null) cost = Arrays.copyOf(cost, length);
+    }
+
+    public int getFrom(int edge) {
+        return from[edge];
+    }
+
+    public int getTo(int edge) {
+        return to[edge];
+    }
+
+    public long getCapacity(int edge) {
+        return capacity[edge];
+    }
+
+    public long getCost(int edge) {
+        return cost == null ? 0 : cost[edge];
+    }
+
+    /**
+     * @return true - if any edge has a non-zero cost, else false.
+     */
+    public boolean hasCosts() {
+        return cost != null;
+    }
+
+    /**
+     * @return hash of the edges added so far, in the order they were added.
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    static long mix(long hash, long value) {
+        return Long.rotateLeft((hash + value) * 0x9E3779B97F4A7C15L, 31);
+    }
+
+    public int size() {
+        return size;
+    }
+}
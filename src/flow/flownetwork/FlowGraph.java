@@ -4,6 +4,8 @@ import flow.datastructure.graph.FlowNetworkEdge;
 import flow.datastructure.graph.FlowStatus;
 import flow.datastructure.graph.Graph;
 import flow.datastructure.graph.Vertex;
+import flow.metrics.Metrics;
+import flow.metrics.Metrics.Phase;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -14,14 +16,22 @@ import java.util.stream.IntStream;
 /**
  * Created by chrisat on 28.10.16.
  */
-public class FlowGraph implements Graph {
+public class FlowGraph implements Graph, FlowNetwork {
     private Vertex source, sink;
     private List<Vertex> internal;
+    private Metrics metrics = Metrics.DISABLED;
 
     public FlowGraph() {
         internal = new ArrayList<>();
     }
 
+    /**
+     * @param metrics - receives the time spent in each step of createGraph.
+     */
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
     /**
      * Construct the vertices, edges, set source and sink of the graph and check if it upholds
      * the flow graph constraints.
@@ -30,14 +40,34 @@ public class FlowGraph implements Graph {
      * @param graph - the graph draw as a double array.
      */
     public void createGraph(int[][] graph) {
-        source = new Vertex(0);
-        sink = new Vertex(graph.length+1);
-        createVertices(graph.length+1);
-        createEdges(graph);
-        verifyFlowGraph();
-        setSource();
-        setSink();
-        setReverse();
+        Metrics.Timer construction = metrics.start(Phase.CONSTRUCTION);
+        try {
+            source = new Vertex(0);
+            sink = new Vertex(graph.length+1);
+            createVertices(graph.length+1);
+            createEdges(graph);
+        } finally {
+            construction.close();
+        }
+        Metrics.Timer verification = metrics.start(Phase.VERIFY);
+        try {
+            verifyFlowGraph();
+        } finally {
+            verification.close();
+        }
+        Metrics.Timer terminals = metrics.start(Phase.TERMINALS);
+        try {
+            setSource();
+            setSink();
+        } finally {
+            terminals.close();
+        }
+        Metrics.Timer reversal = metrics.start(Phase.REVERSE);
+        try {
+            setReverse();
+        } finally {
+            reversal.close();
+        }
     }
 
     /**
@@ -240,6 +270,28 @@ public class FlowGraph implements Graph {
         return source;
     }
 
+    @Override
+    public int getNumberOfVertices() {
+        return internal.size();
+    }
+
+    @Override
+    public void flowRow(int vertex, long[] row) {
+        Arrays.fill(row, 0);
+        for (FlowNetworkEdge<?, ?> edge : internal.get(vertex-1).getOutEdges()) {
+            if (edge.getTo() == getSink()) continue;
+            row[((Vertex)edge.getTo()).getVertex()-1] = (Integer)edge.getFlow();
+        }
+    }
+
+    @Override
+    public void forEachFlow(int vertex, FlowVisitor visitor) {
+        for (FlowNetworkEdge<?, ?> edge : internal.get(vertex-1).getOutEdges()) {
+            if (edge.getTo() == getSink() || (Integer)edge.getFlow() <= 0) continue;
+            visitor.visit(vertex, ((Vertex)edge.getTo()).getVertex(), (Integer)edge.getFlow());
+        }
+    }
+
     /**
      * Note: Try to figure out the use of higher-order procedures/functions to send as parameter argument.
      *       Then you can send edge.capacity() as one function and edge.getFlow() as another instead of
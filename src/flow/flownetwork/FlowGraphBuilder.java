@@ -0,0 +1,130 @@
+package flow.flownetwork;
+
+import flow.metrics.Metrics;
+import flow.metrics.Metrics.Phase;
+
+/**
+ * Builds a graph edge by edge, without a dense matrix. Each edge is checked as it is added, and the degrees and
+ * capacity sums the artificial source and sink need are kept up to date, so build only makes one pass over the
+ * vertices to attach the terminals before laying out the arcs. Every edge gets its forward and reverse arc as a
+ * pair when laid out, in O(1) per edge, instead of searching the in edges of its head for a reverse edge.
+ * The graph built is immutable, only its flow changes, and can be given to any FlowAlgorithm.
+ */
+public class FlowGraphBuilder {
+    private int n;
+    private EdgeList edges;
+    private int[] indegree;
+    private int[] outdegree;
+    private long[] in;
+    private long[] out;
+    private Metrics metrics = Metrics.DISABLED;
+    private boolean built;
+
+    public FlowGraphBuilder(int n) {
+        this(n, 16);
+    }
+
+    /**
+     * @param n - the number of internal vertices, numbered 1..n.
+     * @param expectedEdges - room for this many edges before growing.
+     */
+    public FlowGraphBuilder(int n, int expectedEdges) {
+        if (n < 1) throw new IllegalArgumentException("The graph has no vertices");
+        this.n = n;
+        edges = new EdgeList(expectedEdges);
+        indegree = new int[n + 2];
+        outdegree = new int[n + 2];
+        in = new long[n + 2];
+        out = new long[n + 2];
+    }
+
+    /**
+     * @param metrics - receives the time spent attaching the terminals and laying out the arcs.
+     */
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public FlowGraphBuilder addEdge(int from, int to, long capacity) {
+        return addEdge(from, to, capacity, 0);
+    }
+
+    /**
+     * Add the edge (from -> to), parallel edges stay separate edges.
+     * @param from - tail of the edge (1..n).
+     * @param to - head of the edge (1..n).
+     * @param capacity - upper bound of the flow through the edge.
+     * @param cost - cost of sending one unit of flow through the edge.
+     * @return this builder.
+     */
+    public FlowGraphBuilder addEdge(int from, int to, long capacity, long cost) {
+        checkBuilt();
+        if (capacity < 0)
+            throw new IllegalArgumentException("Negative capacity on edge " + from + " -> " + to);
+        if (from < 1 || from > n || to < 1 || to > n)
+            throw new IllegalArgumentException("Edge " + from + " -> " + to + " is outside the graph");
+        edges.addEdge(from, to, capacity, cost);
+        outdegree[from]++;
+        indegree[to]++;
+        out[from] += capacity;
+        in[to] += capacity;
+        return this;
+    }
+
+    /**
+     * Attach the artificial source to every vertex without in edges and every vertex without out edges to the
+     * artificial sink, as FlowGraph does.
+     * @return the graph, immutable.
+     */
+    public CompressedResidualGraph build() {
+        checkBuilt();
+        EdgeList terminals;
+        Metrics.Timer timer = metrics.start(Phase.TERMINALS);
+        try {
+            terminals = CompressedResidualGraph.terminalEdges(n, indegree, outdegree, in, out);
+        } finally {
+            timer.close();
+        }
+        return finish(terminals);
+    }
+
+    /**
+     * Attach the artificial source to the given source only and the given sink only to the artificial sink,
+     * as in the DIMACS format.
+     * @param source - the designated source.
+     * @param sink - the designated sink.
+     * @return the graph, immutable.
+     */
+    public CompressedResidualGraph build(int source, int sink) {
+        checkBuilt();
+        if (source < 1 || source > n || sink < 1 || sink > n || source == sink)
+            throw new IllegalArgumentException("Source " + source + " and sink " + sink + " are not distinct vertices of the graph");
+        EdgeList terminals = new EdgeList(2);
+        terminals.addEdge(0, source, out[source]);
+        terminals.addEdge(sink, n + 1, in[sink]);
+        return finish(terminals);
+    }
+
+    private void checkBuilt() {
+        if (built) throw new IllegalStateException("The graph is already built");
+    }
+
+    private CompressedResidualGraph finish(EdgeList terminals) {
+        CompressedResidualGraph graph = new CompressedResidualGraph();
+        graph.setMetrics(metrics);
+        graph.createCheckedGraph(n, edges, terminals);
+        built = true;
+        return graph;
+    }
+
+    public int getNumberOfVertices() {
+        return n;
+    }
+
+    /**
+     * @return the number of edges added so far.
+     */
+    public int getNumberOfEdges() {
+        return edges.size();
+    }
+}
@@ -0,0 +1,49 @@
+package flow.flownetwork;
+
+/**
+ * A graph carrying a flow between an artificial source and sink, as seen by the solution output.
+ * Internal vertices are numbered 1..getNumberOfVertices(), the artificial source and sink are left out.
+ */
+public interface FlowNetwork {
+
+    /**
+     * @return the number of internal vertices, excluding the artificial source and sink.
+     */
+    int getNumberOfVertices();
+
+    /**
+     * Fill a dense row with the flow going out of an internal vertex.
+     * @param vertex - the internal vertex (1-based) the row belongs to.
+     * @param row - array of length getNumberOfVertices(), row[j-1] receives the flow from vertex to j.
+     */
+    void flowRow(int vertex, long[] row);
+
+    /**
+     * Visit every internal edge out of a vertex carrying a positive flow.
+     * @param vertex - the internal vertex (1-based) the edges go out of.
+     * @param visitor - receives (vertex, to, flow) for each edge.
+     */
+    void forEachFlow(int vertex, FlowVisitor visitor);
+
+    /**
+     * @return the flow as a dense matrix, one line of space separated values per internal vertex.
+     */
+    default String formatFlow() {
+        int n = getNumberOfVertices();
+        StringBuilder builder = new StringBuilder();
+        long[] row = new long[n];
+        for (int vertex = 1; vertex <= n; vertex++) {
+            flowRow(vertex, row);
+            for (int j = 0; j < row.length; j++) {
+                if (j > 0) builder.append(' ');
+                builder.append(row[j]);
+            }
+            if (vertex < n) builder.append('\n');
+        }
+        return builder.toString();
+    }
+
+    interface FlowVisitor {
+        void visit(int from, int to, long flow);
+    }
+}
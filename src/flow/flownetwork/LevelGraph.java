@@ -1,9 +1,134 @@
 package flow.flownetwork;
 
+import java.util.Arrays;
+
 /**
  * Created by chrisat on 28.10.16.
+ *
+ * Level graph over a compressed residual graph, as used by Dinic's algorithm.
+ * An arc (u -> v) is admissible when it has residual capacity and level(v) = level(u) + 1, where the level is
+ * the BFS distance from the source. Each vertex keeps a current-arc pointer so that a phase scans every arc at most
+ * once before it is either saturated or leads to a dead end.
+ * Searches, arcs scanned and augmentations are counted over the lifetime of the level graph.
  */
-public class LevelGraph extends ResidualGraph {
+public class LevelGraph {
+    private CompressedResidualGraph graph;
+    private int[] level;
+    private int[] currentArc;
+    private int[] queue;
+    private int[] path;
+    private long searches;
+    private long arcsScanned;
+    private long augmentations;
+
+    public LevelGraph(CompressedResidualGraph graph) {
+        this.graph = graph;
+        level = new int[graph.size()];
+        currentArc = new int[graph.size()];
+        queue = new int[graph.size()];
+        path = new int[graph.size()];
+    }
+
+    /**
+     * Label every vertex with its BFS distance from the source through arcs with residual capacity left,
+     * and rewind the current-arc pointers.
+     * @return true - if the sink is reachable, else false.
+     */
+    public boolean createLevels() {
+        Arrays.fill(level, -1);
+        int source = graph.getSource();
+        int first = 0, last = 0;
+        queue[last++] = source;
+        level[source] = 0;
+        searches++;
+
+        while (first < last) {
+            int vertex = queue[first++];
+            currentArc[vertex] = graph.firstArc(vertex);
+            arcsScanned += graph.lastArc(vertex) - graph.firstArc(vertex);
+            for (int arc = graph.firstArc(vertex); arc < graph.lastArc(vertex); arc++) {
+                int to = graph.getHead(arc);
+                if (level[to] != -1 || graph.residualFlow(arc) <= 0) continue;
+                level[to] = level[vertex] + 1;
+                queue[last++] = to;
+            }
+        }
+        return level[graph.getSink()] != -1;
+    }
+
+    /**
+     * Saturate the level graph with an iterative depth first search along admissible arcs.
+     * After each augmentation the search retreats to the tail of the first saturated arc, and vertices
+     * found to be dead ends are cut off by invalidating their level.
+     * @return the amount of flow pushed in this phase.
+     */
+    public long blockingFlow() {
+        int source = graph.getSource(), sink = graph.getSink();
+        long total = 0;
+        int depth = 0;
+        int vertex = source;
+
+        while (true) {
+            if (vertex == sink) {
+                long minimum = Long.MAX_VALUE;
+                for (int i = 0; i < depth; i++)
+                    minimum = Math.min(graph.residualFlow(path[i]), minimum);
+
+                int retreat = depth;
+                for (int i = depth - 1; i >= 0; i--) {
+                    graph.augment(path[i], minimum);
+                    if (graph.residualFlow(path[i]) == 0) retreat = i;
+                }
+                total += minimum;
+                augmentations++;
+                depth = retreat;
+                vertex = depth == 0 ? source : graph.getHead(path[depth - 1]);
+                continue;
+            }
+
+            int arc = currentArc[vertex];
+            while (arc < graph.lastArc(vertex) && !isAdmissible(vertex, arc)) arc++;
+            arcsScanned += arc - currentArc[vertex];
+            currentArc[vertex] = arc;
+
+            if (arc < graph.lastArc(vertex)) {
+                path[depth++] = arc;
+                vertex = graph.getHead(arc);
+            } else {
+                level[vertex] = -1;
+                if (vertex == source) break;
+                vertex = graph.getTail(path[--depth]);
+                currentArc[vertex]++;
+            }
+        }
+        return total;
+    }
+
+    private boolean isAdmissible(int vertex, int arc) {
+        return graph.residualFlow(arc) > 0 && level[graph.getHead(arc)] == level[vertex] + 1;
+    }
+
+    /**
+     * @param vertex - the vertex.
+     * @return the BFS distance from the source, -1 if unreachable or cut off as a dead end.
+     */
+    public int getLevel(int vertex) {
+        return level[vertex];
+    }
+
+    public long getSearches() {
+        return searches;
+    }
+
+    public long getArcsScanned() {
+        return arcsScanned;
+    }
 
+    public long getAugmentations() {
+        return augmentations;
+    }
 
+    public CompressedResidualGraph getGraph() {
+        return graph;
+    }
 }
@@ -0,0 +1,175 @@
+package flow.flownetwork;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Builds a MappedResidualGraph from edges given twice, so no list of the edges is kept in the heap, only arrays over
+ * the vertices. The first pass counts every edge, checked as in FlowGraphBuilder, layOut then attaches the terminals,
+ * lays the arcs of every vertex out and creates the file, and the second pass writes every edge straight into its
+ * forward and reverse arc. The edges must come in the same order both times, the arcs are then numbered as
+ * CompressedResidualGraph numbers them for the same edges, so engines find the same paths on both.
+ */
+public class MappedGraphBuilder {
+    private static final int COUNTING = 0, ADDING = 1, BUILT = 2;
+
+    private int n;
+    private int[] indegree;
+    private int[] outdegree;
+    private long[] in;
+    private long[] out;
+    private long edges;
+    private long added;
+    private int[] forwardPosition;
+    private int[] forwardEnd;
+    private int[] reversePosition;
+    private int[] reverseEnd;
+    private MappedResidualGraph graph;
+    private int state = COUNTING;
+
+    /**
+     * @param n - the number of internal vertices, numbered 1..n.
+     */
+    public MappedGraphBuilder(int n) {
+        if (n < 1) throw new IllegalArgumentException("The graph has no vertices");
+        this.n = n;
+        indegree = new int[n + 2];
+        outdegree = new int[n + 2];
+        in = new long[n + 2];
+        out = new long[n + 2];
+    }
+
+    /**
+     * First pass, count the edge (from -> to).
+     * @param from - tail of the edge (1..n).
+     * @param to - head of the edge (1..n).
+     * @param capacity - upper bound of the flow through the edge.
+     */
+    public void countEdge(int from, int to, long capacity) {
+        checkState(COUNTING, "The edges are already counted");
+        if (capacity < 0)
+            throw new IllegalArgumentException("Negative capacity on edge " + from + " -> " + to);
+        if (from < 1 || from > n || to < 1 || to > n)
+            throw new IllegalArgumentException("Edge " + from + " -> " + to + " is outside the graph");
+        outdegree[from]++;
+        indegree[to]++;
+        out[from] += capacity;
+        in[to] += capacity;
+        edges++;
+    }
+
+    /**
+     * Attach the artificial source to every vertex without in edges and every vertex without out edges to the
+     * artificial sink, as FlowGraph does, and create the file.
+     * @param file - destination, replaced if it exists.
+     */
+    public void layOut(Path file) throws IOException {
+        checkState(COUNTING, "The edges are already laid out");
+        layOut(file, CompressedResidualGraph.terminalEdges(n, indegree, outdegree, in, out));
+    }
+
+    /**
+     * Attach the artificial source to the given source only and the given sink only to the artificial sink,
+     * as in the DIMACS format, and create the file.
+     * @param file - destination, replaced if it exists.
+     * @param source - the designated source.
+     * @param sink - the designated sink.
+     */
+    public void layOut(Path file, int source, int sink) throws IOException {
+        checkState(COUNTING, "The edges are already laid out");
+        if (source < 1 || source > n || sink < 1 || sink > n || source == sink)
+            throw new IllegalArgumentException("Source " + source + " and sink " + sink + " are not distinct vertices of the graph");
+        EdgeList terminals = new EdgeList(2);
+        terminals.addEdge(0, source, out[source]);
+        terminals.addEdge(sink, n + 1, in[sink]);
+        layOut(file, terminals);
+    }
+
+    /**
+     * Give every vertex its forward arcs, the ones of its edges before the ones of its terminal edges, followed by
+     * its reverse arcs in the same order, and write the terminal arcs, whose places are known now.
+     */
+    private void layOut(Path file, EdgeList terminals) throws IOException {
+        int vertices = n + 2;
+        int[] forwardCount = new int[vertices], reverseCount = new int[vertices];
+        for (int v = 0; v < vertices; v++) {
+            forwardCount[v] = outdegree[v];
+            reverseCount[v] = indegree[v];
+        }
+        for (int t = 0; t < terminals.size; t++) {
+            forwardCount[terminals.from[t]]++;
+            reverseCount[terminals.to[t]]++;
+        }
+        if (2 * (edges + terminals.size) > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("The graph has more arcs than can be numbered");
+
+        int[] offset = new int[vertices + 1];
+        for (int v = 0; v < vertices; v++)
+            offset[v + 1] = offset[v] + forwardCount[v] + reverseCount[v];
+        forwardPosition = new int[vertices];
+        forwardEnd = new int[vertices];
+        reversePosition = new int[vertices];
+        for (int v = 0; v < vertices; v++) {
+            forwardPosition[v] = offset[v];
+            forwardEnd[v] = offset[v] + outdegree[v];
+            reversePosition[v] = offset[v] + forwardCount[v];
+        }
+        graph = MappedResidualGraph.allocate(file, n, offset);
+
+        reverseEnd = new int[vertices];
+        for (int v = 0; v < vertices; v++)
+            reverseEnd[v] = reversePosition[v] + indegree[v];
+        int[] terminalForward = forwardEnd.clone();
+        int[] terminalReverse = reverseEnd.clone();
+        for (int t = 0; t < terminals.size; t++) {
+            int from = terminals.from[t], to = terminals.to[t];
+            int forward = terminalForward[from]++, reverse = terminalReverse[to]++;
+            graph.setArc(forward, to, reverse, terminals.capacity[t], 0);
+            graph.setArc(reverse, from, forward, 0, 0);
+        }
+        indegree = outdegree = null;
+        in = out = null;
+        state = ADDING;
+    }
+
+    /**
+     * Second pass, write the edge (from -> to), the edges must come as they were counted.
+     */
+    public void addEdge(int from, int to, long capacity) {
+        checkState(ADDING, "The edges must be counted and laid out first");
+        if (from < 1 || from > n || to < 1 || to > n || forwardPosition[from] == forwardEnd[from]
+            || reversePosition[to] == reverseEnd[to])
+            throw new IllegalStateException("Edge " + from + " -> " + to + " was not counted");
+        int forward = forwardPosition[from]++, reverse = reversePosition[to]++;
+        graph.setArc(forward, to, reverse, capacity, 0);
+        graph.setArc(reverse, from, forward, 0, 0);
+        added++;
+    }
+
+    /**
+     * @return the graph, once every edge counted was added.
+     */
+    public MappedResidualGraph build() {
+        checkState(ADDING, "The edges must be counted and laid out first");
+        if (added != edges)
+            throw new IllegalStateException(added + " of the " + edges + " edges counted were added");
+        state = BUILT;
+        forwardPosition = forwardEnd = reversePosition = reverseEnd = null;
+        return graph;
+    }
+
+    private void checkState(int expected, String message) {
+        if (state != expected) throw new IllegalStateException(state == BUILT ? "The graph is already built" : message);
+    }
+
+    public int getNumberOfVertices() {
+        return n;
+    }
+
+    /**
+     * @return the number of edges counted so far.
+     */
+    public long getNumberOfEdges() {
+        return edges;
+    }
+}
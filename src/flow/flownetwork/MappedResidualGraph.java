@@ -0,0 +1,316 @@
+package flow.flownetwork;
+
+import flow.datastructure.graph.Vertex;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Residual graph stored outside the heap in a memory mapped file, for graphs whose arcs do not fit in the heap.
+ * Vertices and arcs are numbered and laid out as in CompressedResidualGraph: the arcs of a vertex are one run,
+ * forward arcs before reverse arcs, and every arc is one record of RECORD bytes holding its capacity, flow, head and
+ * reverse arc. Scanning the arcs of a vertex so reads consecutive bytes, and the fields a search needs of an arc come
+ * from the same page, only the reverse arc of an augmented arc lies elsewhere. The operating system pages the file
+ * in and out, the heap only holds the buffers of the mapped windows whatever the size of the graph.
+ * MappedByteBuffer addresses at most 2 GB, so the file is mapped in windows of 2^WINDOW_SHIFT records and no
+ * record spans two windows.
+ * Layout, little endian:
+ *  - header: magic "FLOM", version, internal vertices n, arcs.
+ *  - int[n+3] offsets.
+ *  - arc records from the first page boundary after the offsets: long capacity, long flow, int head, int reverse.
+ * Graphs are created by MappedGraphBuilder, copied from a CompressedResidualGraph, or opened again from their file.
+ */
+public class MappedResidualGraph implements FlowNetwork, AutoCloseable {
+    public static final int MAGIC = 0x4D4F4C46;
+    public static final int VERSION = 1;
+    static final int RECORD = 24;
+    private static final int HEADER = 4 * Integer.BYTES;
+    private static final int PAGE = 4096;
+    private static final int WINDOW_SHIFT = 25;
+    private static final int WINDOW_MASK = (1 << WINDOW_SHIFT) - 1;
+    private static final int OFFSET_SHIFT = 28;
+    private static final int OFFSET_MASK = (1 << OFFSET_SHIFT) - 1;
+    private static final int CAPACITY = 0, FLOW = 8, HEAD = 16, REVERSE = 20;
+
+    private FileChannel channel;
+    private int numberOfVertices;
+    private int arcs;
+    private MappedByteBuffer[] offsets;
+    private MappedByteBuffer[] records;
+
+    private MappedResidualGraph(FileChannel channel, int n, int arcs) throws IOException {
+        this.channel = channel;
+        numberOfVertices = n;
+        this.arcs = arcs;
+        offsets = map(channel, HEADER, n + 3, Integer.BYTES, OFFSET_SHIFT);
+        records = map(channel, recordStart(n), arcs, RECORD, WINDOW_SHIFT);
+    }
+
+    private static MappedByteBuffer[] map(FileChannel channel, long start, long count, int size, int shift)
+            throws IOException {
+        MappedByteBuffer[] windows = new MappedByteBuffer[(int) ((count + (1L << shift) - 1) >>> shift)];
+        for (int w = 0; w < windows.length; w++) {
+            long first = (long) w << shift;
+            long length = Math.min(count - first, 1L << shift) * size;
+            windows[w] = channel.map(FileChannel.MapMode.READ_WRITE, start + first * size, length);
+            windows[w].order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return windows;
+    }
+
+    private static long recordStart(int n) {
+        long end = HEADER + (long) Integer.BYTES * (n + 3);
+        return (end + PAGE - 1) / PAGE * PAGE;
+    }
+
+    /**
+     * Create the file with the header and offsets written and every arc record zero.
+     * @param offset - int[n+3], the first arc of every vertex and the number of arcs last.
+     */
+    static MappedResidualGraph allocate(Path file, int n, int[] offset) throws IOException {
+        int arcs = offset[n + 2];
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                                               StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(arcs).flip();
+            while (header.hasRemaining()) channel.write(header, header.position());
+            // a byte at the very end sizes the file, the records in between stay holes until written
+            channel.write(ByteBuffer.allocate(1), recordStart(n) + (long) RECORD * arcs);
+
+            MappedResidualGraph graph = new MappedResidualGraph(channel, n, arcs);
+            for (int v = 0; v < n + 3; v++)
+                graph.offsets[v >>> OFFSET_SHIFT].putInt((v & OFFSET_MASK) * Integer.BYTES, offset[v]);
+            return graph;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Copy a graph into a new file, with the flow it holds. The arcs keep their numbers.
+     * @param file - destination, replaced if it exists.
+     */
+    public static MappedResidualGraph create(Path file, CompressedResidualGraph graph) throws IOException {
+        int n = graph.getNumberOfVertices();
+        int[] offset = new int[n + 3];
+        for (int v = 0; v < n + 2; v++)
+            offset[v] = graph.firstArc(v);
+        offset[n + 2] = graph.getNumberOfArcs();
+        MappedResidualGraph mapped = allocate(file, n, offset);
+        for (int arc = 0; arc < graph.getNumberOfArcs(); arc++)
+            mapped.setArc(arc, graph.getHead(arc), graph.getReverse(arc), graph.getCapacity(arc), graph.getFlow(arc));
+        return mapped;
+    }
+
+    /**
+     * Map a file written before, with the flow it was left with.
+     * @param file - a mapped graph file.
+     */
+    public static MappedResidualGraph open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() < HEADER) throw new IOException("File too short for a mapped graph: " + file);
+            ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining())
+                if (channel.read(header, header.position()) < 0) break;
+            if (header.getInt(0) != MAGIC) throw new IOException("Not a mapped graph: " + file);
+            int version = header.getInt(4);
+            if (version != VERSION) throw new IOException("Unsupported mapped graph version " + version);
+            int n = header.getInt(8), arcs = header.getInt(12);
+            if (n < 0 || arcs < 0 || channel.size() < recordStart(n) + (long) RECORD * arcs)
+                throw new IOException("Corrupt mapped graph: " + file);
+            return new MappedResidualGraph(channel, n, arcs);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    void setArc(int arc, int head, int reverse, long capacity, long flow) {
+        ByteBuffer window = records[arc >>> WINDOW_SHIFT];
+        int position = (arc & WINDOW_MASK) * RECORD;
+        window.putLong(position + CAPACITY, capacity);
+        window.putLong(position + FLOW, flow);
+        window.putInt(position + HEAD, head);
+        window.putInt(position + REVERSE, reverse);
+    }
+
+    /**
+     * Push flow along an arc, and take it back from the paired reverse arc.
+     * @param arc - the arc to augment.
+     * @param amount - amount of flow, at most residualFlow(arc).
+     */
+    public void augment(int arc, long amount) {
+        addFlow(arc, amount);
+        addFlow(getReverse(arc), -amount);
+    }
+
+    private void addFlow(int arc, long amount) {
+        ByteBuffer window = records[arc >>> WINDOW_SHIFT];
+        int position = (arc & WINDOW_MASK) * RECORD + FLOW;
+        window.putLong(position, window.getLong(position) + amount);
+    }
+
+    /**
+     * Reset every arc to zero flow, keeping the structure and capacities.
+     */
+    public void resetFlow() {
+        for (int arc = 0; arc < arcs; arc++)
+            records[arc >>> WINDOW_SHIFT].putLong((arc & WINDOW_MASK) * RECORD + FLOW, 0);
+    }
+
+    public long residualFlow(int arc) {
+        ByteBuffer window = records[arc >>> WINDOW_SHIFT];
+        int position = (arc & WINDOW_MASK) * RECORD;
+        return window.getLong(position + CAPACITY) - window.getLong(position + FLOW);
+    }
+
+    public int firstArc(int vertex) {
+        return offsets[vertex >>> OFFSET_SHIFT].getInt((vertex & OFFSET_MASK) * Integer.BYTES);
+    }
+
+    public int lastArc(int vertex) {
+        return firstArc(vertex + 1);
+    }
+
+    public int getHead(int arc) {
+        return records[arc >>> WINDOW_SHIFT].getInt((arc & WINDOW_MASK) * RECORD + HEAD);
+    }
+
+    /**
+     * @return the tail of the arc, the head of its reverse arc.
+     */
+    public int getTail(int arc) {
+        return getHead(getReverse(arc));
+    }
+
+    public int getReverse(int arc) {
+        return records[arc >>> WINDOW_SHIFT].getInt((arc & WINDOW_MASK) * RECORD + REVERSE);
+    }
+
+    public long getCapacity(int arc) {
+        return records[arc >>> WINDOW_SHIFT].getLong((arc & WINDOW_MASK) * RECORD + CAPACITY);
+    }
+
+    public long getFlow(int arc) {
+        return records[arc >>> WINDOW_SHIFT].getLong((arc & WINDOW_MASK) * RECORD + FLOW);
+    }
+
+    /**
+     * @return the number of arcs, twice the number of edges.
+     */
+    public int getNumberOfArcs() {
+        return arcs;
+    }
+
+    /**
+     * @return the number of vertices including the artificial source and sink.
+     */
+    public int size() {
+        return numberOfVertices + 2;
+    }
+
+    public int getSource() {
+        return 0;
+    }
+
+    public int getSink() {
+        return numberOfVertices + 1;
+    }
+
+    /**
+     * @return the total flow leaving the artificial source.
+     */
+    public long getFlowValue() {
+        long value = 0;
+        for (int arc = firstArc(0); arc < lastArc(0); arc++)
+            value += getFlow(arc);
+        return value;
+    }
+
+    /**
+     * Collect the vertices reachable from the source through arcs with residual capacity left.
+     * At maximum flow these form the source side of a minimum cut.
+     * @return the reachable vertices except the source, sorted by id.
+     */
+    public List<Vertex> getSourceCut() {
+        boolean[] visited = new boolean[size()];
+        int[] queue = new int[size()];
+        int first = 0, last = 0;
+        queue[last++] = 0;
+        visited[0] = true;
+        while (first < last) {
+            int vertex = queue[first++];
+            for (int arc = firstArc(vertex); arc < lastArc(vertex); arc++) {
+                int to = getHead(arc);
+                if (visited[to] || residualFlow(arc) <= 0) continue;
+                visited[to] = true;
+                queue[last++] = to;
+            }
+        }
+
+        List<Vertex> cut = new ArrayList<>();
+        for (int vertex = 1; vertex < size(); vertex++)
+            if (visited[vertex]) cut.add(new Vertex(vertex));
+        return cut;
+    }
+
+    /**
+     * Write the flow changed so far through to the file.
+     */
+    public void force() {
+        for (MappedByteBuffer window : records) window.force();
+    }
+
+    /**
+     * Close the file. The windows stay mapped until they are garbage collected, so the graph must not be used
+     * afterwards.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    @Override
+    public int getNumberOfVertices() {
+        return numberOfVertices;
+    }
+
+    @Override
+    public void flowRow(int vertex, long[] row) {
+        Arrays.fill(row, 0);
+        int sink = getSink();
+        for (int arc = firstArc(vertex); arc < lastArc(vertex); arc++) {
+            long flow = getFlow(arc);
+            int to = getHead(arc);
+            if (flow <= 0 || to == sink || to == 0) continue;
+            row[to - 1] += flow;
+        }
+    }
+
+    @Override
+    public void forEachFlow(int vertex, FlowVisitor visitor) {
+        int sink = getSink();
+        for (int arc = firstArc(vertex); arc < lastArc(vertex); arc++) {
+            long flow = getFlow(arc);
+            int to = getHead(arc);
+            if (flow <= 0 || to == sink || to == 0) continue;
+            visitor.visit(vertex, to, flow);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return formatFlow();
+    }
+}
@@ -0,0 +1,334 @@
+package flow.io;
+
+import flow.flownetwork.CompressedResidualGraph;
+import flow.flownetwork.EdgeList;
+import flow.flownetwork.MappedGraphBuilder;
+import flow.flownetwork.MappedResidualGraph;
+import flow.metrics.Metrics;
+import flow.metrics.Metrics.Phase;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Streams a flow network from a file straight into a CompressedResidualGraph.
+ * Three formats, DIMACS in two variants, are understood:
+ *  - matrix: the number of vertices n on the first line, then n rows of n capacities, row = from, column = to.
+ *  - edge list: "n m" on the first line, then one "from to capacity [cost]" line per edge, vertices numbered 1..n.
+ *  - DIMACS max flow: "c" comment lines, "p max n m", "n id s" and "n id t" for the terminals, "a from to capacity".
+ *  - DIMACS min cost flow: "p min n m", "n id supply" for the terminals, "a from to low capacity cost" with low = 0.
+ *    The supply only marks the source (positive) and the sink (negative), the cheapest maximum flow is wanted.
+ * Binary snapshots written by GraphSnapshot are recognised as well.
+ * The format is taken from the file extension (.max/.dimacs, .edges/.el, .snapshot) and otherwise from the header,
+ * a snapshot starts with its magic, a DIMACS file with 'c' or 'p', a matrix header holds one number and an edge
+ * list header two.
+ */
+public class GraphReader {
+
+    public enum Format { MATRIX, EDGE_LIST, DIMACS, SNAPSHOT }
+
+    /**
+     * @param file - the input file.
+     * @return the format implied by the extension, null if it has to be read from the header.
+     */
+    public static Format formatOf(Path file) {
+        String name = file.getFileName().toString().toLowerCase();
+        if (name.endsWith(".max") || name.endsWith(".dimacs")) return Format.DIMACS;
+        if (name.endsWith(".edges") || name.endsWith(".el")) return Format.EDGE_LIST;
+        if (name.endsWith(".snapshot")) return Format.SNAPSHOT;
+        return null;
+    }
+
+    /**
+     * @param file - the input file.
+     * @return the format implied by the extension, else the one read detects from the header.
+     */
+    public static Format detect(Path file) throws IOException {
+        Format format = formatOf(file);
+        if (format != null) return format;
+        if (GraphSnapshot.isSnapshot(file)) return Format.SNAPSHOT;
+        try (MappedInput in = new MappedInput(file)) {
+            int c = in.skipBlank();
+            if (c == -1)
+                throw new FileNotFoundException("Empty file is found. Not valid preferred format.");
+            if (c == 'c' || c == 'p') return Format.DIMACS;
+            in.nextInt();
+            return in.isEndOfLine() ? Format.MATRIX : Format.EDGE_LIST;
+        }
+    }
+
+    public static CompressedResidualGraph read(Path file) throws IOException {
+        return read(file, formatOf(file));
+    }
+
+    /**
+     * Read the graph in the given format.
+     * @param file - the input file.
+     * @param format - the format of the file, null to detect it from the header.
+     * @return the residual graph with the artificial source and sink attached.
+     */
+    public static CompressedResidualGraph read(Path file, Format format) throws IOException {
+        return read(file, format, Metrics.DISABLED);
+    }
+
+    /**
+     * Read the graph in the given format, timing the parse and the construction of the graph separately.
+     * @param file - the input file.
+     * @param format - the format of the file, null to detect it from the header.
+     * @param metrics - receives the parse time and the construction times of the graph.
+     * @return the residual graph with the artificial source and sink attached.
+     */
+    public static CompressedResidualGraph read(Path file, Format format, Metrics metrics) throws IOException {
+        if (format == Format.SNAPSHOT || format == null && GraphSnapshot.isSnapshot(file)) {
+            Metrics.Timer timer = metrics.start(Phase.PARSE);
+            try {
+                return GraphSnapshot.read(file);
+            } finally {
+                timer.close();
+            }
+        }
+
+        CompressedResidualGraph graph = new CompressedResidualGraph();
+        graph.setMetrics(metrics);
+        try (MappedInput in = new MappedInput(file)) {
+            Metrics.Timer timer = metrics.start(Phase.PARSE);
+            int c = in.skipBlank();
+            if (c == -1)
+                throw new FileNotFoundException("Empty file is found. Not valid preferred format.");
+            if (format == Format.DIMACS || format == null && (c == 'c' || c == 'p'))
+                readDimacs(in, graph, timer);
+            else {
+                int n = in.nextInt();
+                if (format == Format.EDGE_LIST || format == null && !in.isEndOfLine())
+                    readEdgeList(in, n, graph, timer);
+                else
+                    readMatrix(in, n, graph, timer);
+            }
+        }
+        graph.setMetrics(Metrics.DISABLED);
+        return graph;
+    }
+
+    /**
+     * Read the graph into a MappedResidualGraph backed by the storage file, for graphs whose arcs do not fit in the
+     * heap. The input is read twice, first to count the edges and then to write them, so only arrays over the vertices
+     * are kept in the heap. Maximum flow problems only, snapshots and minimum cost DIMACS files can not be mapped,
+     * the costs of an edge list are left out.
+     * @param file - the input file, its format detected as in read.
+     * @param storage - the file holding the arcs, replaced if it exists.
+     * @return the mapped residual graph with the artificial source and sink attached, numbered as read numbers it.
+     */
+    public static MappedResidualGraph readMapped(Path file, Path storage) throws IOException {
+        Format format = formatOf(file);
+        if (format == Format.SNAPSHOT || format == null && GraphSnapshot.isSnapshot(file))
+            throw new IOException("A snapshot can not be read into a mapped graph");
+
+        MappedReader reader = new MappedReader();
+        reader.scan(file, format);
+        if (reader.builder == null) throw new IOException("No problem line found");
+        if (reader.source == 0 && reader.sink == 0) reader.builder.layOut(storage);
+        else reader.builder.layOut(storage, reader.source, reader.sink);
+        reader.counting = false;
+        reader.scan(file, format);
+        return reader.builder.build();
+    }
+
+    /**
+     * Read capacity updates for CompressedResidualGraph.setCapacities, one "from to capacity" line per edge.
+     * @param file - the update file.
+     * @return the edges with their new capacities, in the order of the file.
+     */
+    public static EdgeList readUpdates(Path file) throws IOException {
+        EdgeList updates = new EdgeList();
+        try (MappedInput in = new MappedInput(file)) {
+            while (in.hasNext())
+                updates.addEdge(in.nextInt(), in.nextInt(), in.nextLong());
+        }
+        return updates;
+    }
+
+    /**
+     * Read the dense matrix format into an array, as the solver driver has always done.
+     * @param file - the input file.
+     * @return the capacities, graph[from][to].
+     */
+    public static int[][] readArray(Path file) throws IOException {
+        try (MappedInput in = new MappedInput(file)) {
+            if (!in.hasNext())
+                throw new FileNotFoundException("Empty file is found. Not valid preferred format.");
+            int n = in.nextInt();
+            int[][] graph = new int[n][n];
+            for (int i = 0; i < n; i++)
+                for (int j = 0; j < n; j++)
+                    graph[i][j] = in.nextInt();
+            return graph;
+        }
+    }
+
+    /**
+     * The readers below close the parse timer once the input is consumed, before the graph is constructed.
+     */
+    private static void readMatrix(MappedInput in, int n, CompressedResidualGraph graph, Metrics.Timer timer) throws IOException {
+        EdgeList edges = new EdgeList(n);
+        for (int i = 1; i <= n; i++) {
+            for (int j = 1; j <= n; j++) {
+                int capacity = in.nextInt();
+                if (capacity != 0) edges.addEdge(i, j, capacity);
+            }
+        }
+        timer.close();
+        graph.createGraph(n, edges);
+    }
+
+    private static void readEdgeList(MappedInput in, int n, CompressedResidualGraph graph, Metrics.Timer timer) throws IOException {
+        EdgeList edges = new EdgeList((int) Math.min(in.nextLong(), Integer.MAX_VALUE - 8));
+        while (in.hasNext()) {
+            int from = in.nextInt(), to = in.nextInt();
+            long capacity = in.nextLong();
+            edges.addEdge(from, to, capacity, in.isEndOfLine() ? 0 : in.nextLong());
+        }
+
+        timer.close();
+        graph.createGraph(n, edges);
+    }
+
+    private static void readDimacs(MappedInput in, CompressedResidualGraph graph, Metrics.Timer timer) throws IOException {
+        EdgeList edges = null;
+        int n = 0, source = 0, sink = 0;
+        boolean minimumCost = false;
+
+        while (in.hasNext()) {
+            int type = in.nextChar();
+            switch (type) {
+                case 'c':
+                    in.skipLine();
+                    break;
+                case 'p':
+                    String problem = in.nextWord();
+                    if (!problem.equals("max") && !problem.equals("min"))
+                        throw new IOException("Unknown problem type '" + problem + "'");
+                    minimumCost = problem.equals("min");
+                    n = in.nextInt();
+                    edges = new EdgeList((int) Math.min(in.nextLong(), Integer.MAX_VALUE - 8));
+                    break;
+                case 'n':
+                    int vertex = in.nextInt();
+                    if (minimumCost) {
+                        long supply = in.nextLong();
+                        if (supply > 0 && source != 0 || supply < 0 && sink != 0)
+                            throw new IOException("Only one supply and one demand vertex are supported");
+                        if (supply > 0) source = vertex;
+                        else if (supply < 0) sink = vertex;
+                        break;
+                    }
+                    int terminal = in.nextChar();
+                    if (terminal == 's') source = vertex;
+                    else if (terminal == 't') sink = vertex;
+                    else throw new IOException("Unknown terminal '" + (char) terminal + "' for vertex " + vertex);
+                    break;
+                case 'a':
+                    if (edges == null) throw new IOException("Arc found before the problem line");
+                    int from = in.nextInt(), to = in.nextInt();
+                    if (minimumCost) {
+                        if (in.nextLong() != 0) throw new IOException("Lower bounds are not supported");
+                        long capacity = in.nextLong();
+                        edges.addEdge(from, to, capacity, in.nextLong());
+                    } else {
+                        edges.addEdge(from, to, in.nextLong());
+                    }
+                    break;
+                default:
+                    throw new IOException("Unknown line type '" + (char) type + "'");
+            }
+        }
+        if (edges == null) throw new IOException("No problem line found");
+
+        timer.close();
+        if (source == 0 && sink == 0) graph.createGraph(n, edges);
+        else graph.createGraph(n, edges, source, sink);
+    }
+
+    /**
+     * Hands every edge of the file to the builder, counting them on the first pass and adding them on the second.
+     */
+    private static class MappedReader {
+        private MappedGraphBuilder builder;
+        private boolean counting = true;
+        private int source, sink;
+
+        private void scan(Path file, Format format) throws IOException {
+            try (MappedInput in = new MappedInput(file)) {
+                int c = in.skipBlank();
+                if (c == -1)
+                    throw new FileNotFoundException("Empty file is found. Not valid preferred format.");
+                if (format == Format.DIMACS || format == null && (c == 'c' || c == 'p')) {
+                    scanDimacs(in);
+                    return;
+                }
+                int n = in.nextInt();
+                if (format == Format.EDGE_LIST || format == null && !in.isEndOfLine()) {
+                    start(n);
+                    in.nextLong();
+                    while (in.hasNext()) {
+                        int from = in.nextInt(), to = in.nextInt();
+                        long capacity = in.nextLong();
+                        if (!in.isEndOfLine()) in.nextLong();
+                        edge(from, to, capacity);
+                    }
+                } else {
+                    start(n);
+                    for (int i = 1; i <= n; i++) {
+                        for (int j = 1; j <= n; j++) {
+                            int capacity = in.nextInt();
+                            if (capacity != 0) edge(i, j, capacity);
+                        }
+                    }
+                }
+            }
+        }
+
+        private void scanDimacs(MappedInput in) throws IOException {
+            boolean started = false;
+            while (in.hasNext()) {
+                int type = in.nextChar();
+                switch (type) {
+                    case 'c':
+                        in.skipLine();
+                        break;
+                    case 'p':
+                        String problem = in.nextWord();
+                        if (!problem.equals("max"))
+                            throw new IOException("Only maximum flow problems can be mapped, found '" + problem + "'");
+                        start(in.nextInt());
+                        in.nextLong();
+                        started = true;
+                        break;
+                    case 'n':
+                        int vertex = in.nextInt();
+                        int terminal = in.nextChar();
+                        if (terminal == 's') source = vertex;
+                        else if (terminal == 't') sink = vertex;
+                        else throw new IOException("Unknown terminal '" + (char) terminal + "' for vertex " + vertex);
+                        break;
+                    case 'a':
+                        if (!started) throw new IOException("Arc found before the problem line");
+                        int from = in.nextInt(), to = in.nextInt();
+                        edge(from, to, in.nextLong());
+                        break;
+                    default:
+                        throw new IOException("Unknown line type '" + (char) type + "'");
+                }
+            }
+        }
+
+        private void start(int n) {
+            if (builder == null) builder = new MappedGraphBuilder(n);
+        }
+
+        private void edge(int from, int to, long capacity) {
+            if (counting) builder.countEdge(from, to, capacity);
+            else builder.addEdge(from, to, capacity);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package flow.io;
+
+import flow.flownetwork.CompressedResidualGraph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary snapshot of a CompressedResidualGraph, written once and mapped straight back into arrays.
+ * Layout, little endian:
+ *  - header: magic "FLOW", version, flags (bit 0 = flows, bit 1 = costs included), internal vertices n, source,
+ *    sink, arcs.
+ *  - int[n+3] offsets, int[arcs] heads, int[arcs] reverse arcs, long[arcs] capacities, long[arcs] flows if flagged,
+ *    long[arcs] costs if flagged.
+ * Reloading skips parsing, construction, reverse pairing and verification of the edges, the arrays are only
+ * checked to be in range, so a corrupt snapshot fails while it is read and not inside an engine.
+ */
+public class GraphSnapshot {
+    public static final int MAGIC = 0x574F4C46;
+    public static final int VERSION = 1;
+    private static final int FLOWS = 1;
+    private static final int COSTS = 2;
+    private static final int HEADER = 7 * Integer.BYTES;
+    private static final long WINDOW = 1L << 30;
+
+    /**
+     * @param file - the file to check.
+     * @return true - if the file starts with the snapshot magic, else false.
+     */
+    public static boolean isSnapshot(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER) return false;
+            ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(magic, 0);
+            return magic.getInt(0) == MAGIC;
+        }
+    }
+
+    /**
+     * Write the graph to a snapshot file.
+     * @param graph - the graph to store.
+     * @param file - destination, replaced if it exists.
+     * @param withFlow - store the current flow as well, else the graph reloads with zero flow.
+     */
+    public static void write(CompressedResidualGraph graph, Path file, boolean withFlow) throws IOException {
+        int arcs = graph.getNumberOfArcs();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            int flags = (withFlow ? FLOWS : 0) | (graph.hasCosts() ? COSTS : 0);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(flags)
+                  .putInt(graph.getNumberOfVertices()).putInt(graph.getSource()).putInt(graph.getSink()).putInt(arcs);
+
+            for (int v = 0; v < graph.size(); v++)
+                putInt(channel, buffer, graph.firstArc(v));
+            putInt(channel, buffer, graph.lastArc(graph.size() - 1));
+            for (int arc = 0; arc < arcs; arc++)
+                putInt(channel, buffer, graph.getHead(arc));
+            for (int arc = 0; arc < arcs; arc++)
+                putInt(channel, buffer, graph.getReverse(arc));
+            for (int arc = 0; arc < arcs; arc++)
+                putLong(channel, buffer, graph.getCapacity(arc));
+            if (withFlow) {
+                for (int arc = 0; arc < arcs; arc++)
+                    putLong(channel, buffer, graph.getFlow(arc));
+            }
+            if (graph.hasCosts()) {
+                for (int arc = 0; arc < arcs; arc++)
+                    putLong(channel, buffer, graph.getCost(arc));
+            }
+            flush(channel, buffer);
+        }
+    }
+
+    private static void putInt(FileChannel channel, ByteBuffer buffer, int value) throws IOException {
+        if (buffer.remaining() < Integer.BYTES) flush(channel, buffer);
+        buffer.putInt(value);
+    }
+
+    private static void putLong(FileChannel channel, ByteBuffer buffer, long value) throws IOException {
+        if (buffer.remaining() < Long.BYTES) flush(channel, buffer);
+        buffer.putLong(value);
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Map a snapshot file back into a graph.
+     * @param file - the snapshot file.
+     * @return the graph, holding the stored flow if the snapshot has one, else zero flow.
+     */
+    public static CompressedResidualGraph read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER) throw new IOException("File too short for a graph snapshot: " + file);
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt() != MAGIC) throw new IOException("Not a graph snapshot: " + file);
+            int version = header.getInt();
+            if (version != VERSION) throw new IOException("Unsupported graph snapshot version " + version);
+            int flags = header.getInt();
+            int n = header.getInt();
+            int source = header.getInt();
+            int sink = header.getInt();
+            int arcs = header.getInt();
+            boolean withFlow = (flags & FLOWS) != 0;
+            boolean withCost = (flags & COSTS) != 0;
+
+            long expected = HEADER + (long) Integer.BYTES * (n + 3) + (long) Integer.BYTES * 2 * arcs
+                            + (long) Long.BYTES * (1 + (withFlow ? 1 : 0) + (withCost ? 1 : 0)) * arcs;
+            if (n < 0 || arcs < 0 || source != 0 || sink != n + 1 || channel.size() != expected)
+                throw new IOException("Corrupt graph snapshot: " + file);
+
+            long position = HEADER;
+            int[] offset = new int[n + 3];
+            position = readInts(channel, position, offset);
+            int[] head = new int[arcs];
+            position = readInts(channel, position, head);
+            int[] reverse = new int[arcs];
+            position = readInts(channel, position, reverse);
+            checkArcs(file, n, offset, head, reverse);
+            long[] capacity = new long[arcs];
+            position = readLongs(channel, position, capacity);
+            long[] flow = null;
+            if (withFlow) {
+                flow = new long[arcs];
+                position = readLongs(channel, position, flow);
+            }
+            long[] cost = null;
+            if (withCost) {
+                cost = new long[arcs];
+                readLongs(channel, position, cost);
+            }
+
+            CompressedResidualGraph graph = new CompressedResidualGraph();
+            graph.createGraph(n, offset, head, reverse, capacity, flow);
+            graph.setCosts(cost);
+            return graph;
+        }
+    }
+
+    /**
+     * Check that the offsets start at 0, never decrease and end at the number of arcs, that every head is a vertex
+     * in [0, n+1] and that every reverse arc is an arc pointing back.
+     */
+    private static void checkArcs(Path file, int n, int[] offset, int[] head, int[] reverse) throws IOException {
+        int arcs = head.length;
+        if (offset[0] != 0 || offset[n + 2] != arcs)
+            throw new IOException("Corrupt graph snapshot " + file + ": offsets span " + offset[0] + ".." + offset[n + 2]
+                                  + " instead of 0.." + arcs);
+        for (int v = 0; v < n + 2; v++) {
+            if (offset[v + 1] < offset[v])
+                throw new IOException("Corrupt graph snapshot " + file + ": offset of vertex " + (v + 1) + " is "
+                                      + offset[v + 1] + ", below " + offset[v] + " of vertex " + v);
+        }
+        for (int arc = 0; arc < arcs; arc++) {
+            if (head[arc] < 0 || head[arc] > n + 1)
+                throw new IOException("Corrupt graph snapshot " + file + ": arc " + arc + " has head " + head[arc]
+                                      + " outside 0.." + (n + 1));
+        }
+        for (int v = 0; v < n + 2; v++) {
+            for (int arc = offset[v]; arc < offset[v + 1]; arc++) {
+                int pair = reverse[arc];
+                if (pair < 0 || pair >= arcs || reverse[pair] != arc || head[pair] != v)
+                    throw new IOException("Corrupt graph snapshot " + file + ": arc " + arc + " has reverse arc " + pair
+                                          + " which does not point back");
+            }
+        }
+    }
+
+    private static long readInts(FileChannel channel, long position, int[] array) throws IOException {
+        int done = 0;
+        while (done < array.length) {
+            int count = (int) Math.min(array.length - done, WINDOW / Integer.BYTES);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, (long) count * Integer.BYTES);
+            buffer.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(array, done, count);
+            position += (long) count * Integer.BYTES;
+            done += count;
+        }
+        return position;
+    }
+
+    private static long readLongs(FileChannel channel, long position, long[] array) throws IOException {
+        int done = 0;
+        while (done < array.length) {
+            int count = (int) Math.min(array.length - done, WINDOW / Long.BYTES);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, (long) count * Long.BYTES);
+            buffer.order(ByteOrder.LITTLE_ENDIAN).asLongBuffer().get(array, done, count);
+            position += (long) count * Long.BYTES;
+            done += count;
+        }
+        return position;
+    }
+}
@@ -0,0 +1,161 @@
+package flow.io;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only view of a file mapped into memory window by window, tokenized by hand.
+ * Numbers are parsed straight from the bytes, no String is created per token.
+ */
+public class MappedInput implements AutoCloseable {
+    private static final long WINDOW = 1L << 30;
+    private static final int EOF = -1;
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long position;
+    private long length;
+
+    public MappedInput(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        length = channel.size();
+        map();
+    }
+
+    private void map() throws IOException {
+        long size = Math.min(WINDOW, length - position);
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        position += size;
+    }
+
+    /**
+     * @return the next byte without consuming it, -1 at the end of the file.
+     */
+    public int peek() throws IOException {
+        if (!buffer.hasRemaining()) {
+            if (position == length) return EOF;
+            map();
+        }
+        return buffer.get(buffer.position()) & 0xFF;
+    }
+
+    private int read() throws IOException {
+        int c = peek();
+        if (c != EOF) buffer.get();
+        return c;
+    }
+
+    private static boolean isBlank(int c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+    }
+
+    /**
+     * Skip whitespace, including line breaks.
+     * @return the first byte of the next token without consuming it, -1 at the end of the file.
+     */
+    public int skipBlank() throws IOException {
+        int c = peek();
+        while (isBlank(c)) {
+            read();
+            c = peek();
+        }
+        return c;
+    }
+
+    /**
+     * Skip spaces and tabs on the current line.
+     * @return true - if nothing but whitespace is left on the current line, else false.
+     */
+    public boolean isEndOfLine() throws IOException {
+        int c = peek();
+        while (c == ' ' || c == '\t' || c == '\r') {
+            read();
+            c = peek();
+        }
+        return c == '\n' || c == EOF;
+    }
+
+    /**
+     * Consume the rest of the current line, including the line break.
+     */
+    public void skipLine() throws IOException {
+        int c = read();
+        while (c != '\n' && c != EOF) c = read();
+    }
+
+    /**
+     * @return true - if another token follows, else false.
+     */
+    public boolean hasNext() throws IOException {
+        return skipBlank() != EOF;
+    }
+
+    /**
+     * Consume a single character token, like the line type of a DIMACS file.
+     */
+    public int nextChar() throws IOException {
+        if (skipBlank() == EOF) throw new IOException("Unexpected end of file");
+        int c = read();
+        if (!isBlank(peek()) && peek() != EOF) throw new IOException("Expected a single character but found '" + (char) c + (char) peek() + "'");
+        return c;
+    }
+
+    /**
+     * Consume a word, like the problem type of a DIMACS file. Only meant for short tokens in headers.
+     */
+    public String nextWord() throws IOException {
+        if (skipBlank() == EOF) throw new IOException("Unexpected end of file");
+        StringBuilder word = new StringBuilder();
+        while (!isBlank(peek()) && peek() != EOF) word.append((char) read());
+        return word.toString();
+    }
+
+    /**
+     * Consume a word and compare it to the expected one.
+     */
+    public void expect(String word) throws IOException {
+        skipBlank();
+        for (int i = 0; i < word.length(); i++) {
+            if (read() != word.charAt(i)) throw new IOException("Expected '" + word + "'");
+        }
+        if (!isBlank(peek()) && peek() != EOF) throw new IOException("Expected '" + word + "'");
+    }
+
+    /**
+     * Parse the next whitespace separated integer.
+     */
+    public long nextLong() throws IOException {
+        int c = skipBlank();
+        if (c == EOF) throw new IOException("Unexpected end of file");
+        boolean negative = c == '-';
+        if (negative || c == '+') {
+            read();
+            c = peek();
+        }
+        if (c < '0' || c > '9') throw new IOException("Expected a number but found '" + (char) c + "'");
+
+        long value = 0;
+        while (c >= '0' && c <= '9') {
+            if (value > (Long.MAX_VALUE - (c - '0')) / 10) throw new IOException("Number out of range");
+            value = value * 10 + (c - '0');
+            read();
+            c = peek();
+        }
+        if (!isBlank(c) && c != EOF) throw new IOException("Expected a number but found '" + (char) c + "'");
+        return negative ? -value : value;
+    }
+
+    public int nextInt() throws IOException {
+        long value = nextLong();
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) throw new IOException("Number out of range: " + value);
+        return (int) value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
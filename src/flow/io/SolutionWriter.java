@@ -0,0 +1,148 @@
+package flow.io;
+
+import flow.FlowSolution;
+import flow.datastructure.graph.Vertex;
+import flow.flownetwork.FlowNetwork;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streams a solution to a file through a small buffer, one matrix row or arc at a time,
+ * instead of building the whole output as a String.
+ * Dense output is byte for byte what FlowSolution.toString gives: the maximum flow, the n x n flow matrix,
+ * the source cut and the number of steps, each on its own line(s), and the total cost on a last line when the
+ * solution has one.
+ * Sparse output replaces the matrix by the number of arcs carrying flow followed by one "from to flow" line each.
+ */
+public class SolutionWriter implements AutoCloseable {
+    private static final int BUFFER = 1 << 16;
+
+    private FileChannel channel;
+    private ByteBuffer buffer;
+    private byte[] digits = new byte[20];
+
+    public SolutionWriter(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                                   StandardOpenOption.TRUNCATE_EXISTING);
+        buffer = ByteBuffer.allocateDirect(BUFFER);
+    }
+
+    public static void write(FlowSolution solution, Path file, boolean sparse) throws IOException {
+        try (SolutionWriter writer = new SolutionWriter(file)) {
+            writer.write(solution, sparse);
+        }
+    }
+
+    public void write(FlowSolution solution, boolean sparse) throws IOException {
+        FlowNetwork graph = solution.getGraph();
+        putLong(solution.getMaximumFlow());
+        put('\n');
+
+        try {
+            if (sparse) writeArcs(graph);
+            else writeMatrix(graph);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        boolean first = true;
+        for (Vertex vertex : solution.getSourceCut()) {
+            if (!first) put(' ');
+            putLong(vertex.getVertex());
+            first = false;
+        }
+        put('\n');
+        putLong(solution.getNumberOfSteps());
+        put('\n');
+        if (solution.hasTotalCost()) {
+            putLong(solution.getTotalCost());
+            put('\n');
+        }
+    }
+
+    private void writeMatrix(FlowNetwork graph) throws IOException {
+        int n = graph.getNumberOfVertices();
+        long[] row = new long[n];
+        for (int vertex = 1; vertex <= n; vertex++) {
+            graph.flowRow(vertex, row);
+            for (int j = 0; j < n; j++) {
+                if (j > 0) put(' ');
+                putLong(row[j]);
+            }
+            put('\n');
+        }
+    }
+
+    private void writeArcs(FlowNetwork graph) throws IOException {
+        long[] count = new long[1];
+        for (int vertex = 1; vertex <= graph.getNumberOfVertices(); vertex++)
+            graph.forEachFlow(vertex, (from, to, flow) -> count[0]++);
+        putLong(count[0]);
+        put('\n');
+
+        for (int vertex = 1; vertex <= graph.getNumberOfVertices(); vertex++) {
+            graph.forEachFlow(vertex, (from, to, flow) -> {
+                try {
+                    putLong(from);
+                    put(' ');
+                    putLong(to);
+                    put(' ');
+                    putLong(flow);
+                    put('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    private void put(char c) throws IOException {
+        if (!buffer.hasRemaining()) flush();
+        buffer.put((byte) c);
+    }
+
+    /**
+     * Write the decimal digits of a number without going through a String.
+     */
+    private void putLong(long value) throws IOException {
+        if (buffer.remaining() < digits.length + 1) flush();
+        if (value == 0) {
+            buffer.put((byte) '0');
+            return;
+        }
+        if (value == Long.MIN_VALUE) {
+            for (char c : Long.toString(value).toCharArray()) buffer.put((byte) c);
+            return;
+        }
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        int length = 0;
+        while (value > 0) {
+            digits[length++] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        while (length > 0) buffer.put(digits[--length]);
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package flow.metrics;
+
+import jdk.jfr.EventType;
+
+/**
+ * Counters and phase wall-times of one solve. A Metrics is meant for one thread, engines keep their own
+ * counters while they run and add them once at the end. A disabled Metrics hands out one shared timer which does
+ * nothing, so it costs a branch per phase and allocates nothing.
+ * Every phase is also reported as a PhaseEvent to JDK Flight Recorder when a recording is running, whether
+ * or not the Metrics is enabled, the timers are then real ones.
+ */
+public class Metrics {
+    public static final Metrics DISABLED = new Metrics(false);
+
+    private static final EventType PHASE_EVENT = EventType.getEventType(PhaseEvent.class);
+    private static final Timer NO_TIMER = new Timer(null, null);
+
+    public enum Counter { AUGMENTATIONS, SEARCHES, ARCS_SCANNED, PHASES, PUSHES, RELABELS, GLOBAL_RELABELS }
+
+    public enum Phase { PARSE, VERIFY, TERMINALS, REVERSE, CONSTRUCTION, REDUCTION, SOLVE, OUTPUT }
+
+    private final boolean enabled;
+    private final long[] counters = new long[Counter.values().length];
+    private final long[] nanoseconds = new long[Phase.values().length];
+
+    public Metrics() {
+        this(true);
+    }
+
+    private Metrics(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void add(Counter counter, long amount) {
+        if (enabled) counters[counter.ordinal()] += amount;
+    }
+
+    public long get(Counter counter) {
+        return counters[counter.ordinal()];
+    }
+
+    /**
+     * @return the wall time spent in the phase, in nanoseconds, summed over every time it ran.
+     */
+    public long getNanoseconds(Phase phase) {
+        return nanoseconds[phase.ordinal()];
+    }
+
+    /**
+     * Start timing a phase, to be closed when the phase ends:
+     * Metrics.Timer timer = metrics.start(Phase.SOLVE);
+     * try { ... } finally { timer.close(); }
+     */
+    public Timer start(Phase phase) {
+        if (!enabled && !PHASE_EVENT.isEnabled()) return NO_TIMER;
+        return new Timer(this, phase);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (Phase phase : Phase.values()) {
+            if (nanoseconds[phase.ordinal()] == 0) continue;
+            builder.append(String.format("%-14s %10.3f ms%n", phase, nanoseconds[phase.ordinal()] / 1e6));
+        }
+        for (Counter counter : Counter.values()) {
+            if (counters[counter.ordinal()] == 0) continue;
+            builder.append(String.format("%-14s %10d%n", counter, counters[counter.ordinal()]));
+        }
+        return builder.toString();
+    }
+
+    public static class Timer implements AutoCloseable {
+        private final Metrics metrics;
+        private final Phase phase;
+        private final long start;
+        private final PhaseEvent event;
+
+        private Timer(Metrics metrics, Phase phase) {
+            this.metrics = metrics;
+            this.phase = phase;
+            if (metrics == null) {
+                event = null;
+                start = 0;
+                return;
+            }
+            event = new PhaseEvent();
+            event.begin();
+            start = metrics.enabled ? System.nanoTime() : 0;
+        }
+
+        @Override
+        public void close() {
+            if (metrics == null) return;
+            if (metrics.enabled) metrics.nanoseconds[phase.ordinal()] += System.nanoTime() - start;
+            event.end();
+            if (event.shouldCommit()) {
+                event.phase = phase.name();
+                event.commit();
+            }
+        }
+    }
+}
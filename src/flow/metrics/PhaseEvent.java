@@ -0,0 +1,19 @@
+package flow.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event spanning one phase of a solve: parsing, construction, solving or output.
+ */
+@Name("flow.Phase")
+@Label("Flow Phase")
+@Category("Network Flow")
+@Description("A phase of reading, building, solving or writing a flow network")
+class PhaseEvent extends Event {
+    @Label("Phase")
+    String phase;
+}
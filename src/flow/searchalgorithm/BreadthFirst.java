@@ -1,41 +1,31 @@
 package flow.searchalgorithm;
 
-import flow.datastructure.graph.FlowNetworkEdge;
-import flow.datastructure.graph.Vertex;
-import flow.flownetwork.FlowGraph;
-
-import java.util.*;
+import flow.flownetwork.CompressedResidualGraph;
 
 /**
  * Created by chrisat on 28.10.16.
  */
 public class BreadthFirst implements SearchAlgorithm {
     @Override
-    public List<FlowNetworkEdge> findPath(FlowGraph graph, Vertex source, Vertex sink, boolean search) {
-        Set<Vertex> visited = new HashSet<>();
-        List<FlowNetworkEdge> parent = new ArrayList<>();
-        boolean pathFound = false;
-
-        LinkedList<Vertex> queue = new LinkedList<>();
+    public int findPath(CompressedResidualGraph graph, int source, int sink, SearchState state) {
+        int[] queue = state.getQueue();
+        int first = 0, last = 0;
 
-        queue.add(source);
-        visited.add(source);
+        state.nextEpoch();
+        state.visit(source, -1);
+        queue[last++] = source;
 
-        while (!queue.isEmpty()) {
-            Vertex current = queue.poll();
-            for (FlowNetworkEdge edge : current.getOutEdges()) {
-                Vertex vertex = ((Vertex) edge.getTo());
-                if (visited.contains(vertex) || edge.residualFlow() <= 0) continue;
-                parent.add(edge);
-                visited.add(vertex);
-                queue.add(vertex);
-                if (vertex == sink) {
-                    pathFound = true;
-                    break;
-                }
+        while (first < last) {
+            int current = queue[first++];
+            state.scanned(graph.lastArc(current) - graph.firstArc(current));
+            for (int arc = graph.firstArc(current); arc < graph.lastArc(current); arc++) {
+                int vertex = graph.getHead(arc);
+                if (state.isVisited(vertex) || !state.isUsable(graph, arc)) continue;
+                state.visit(vertex, arc);
+                if (vertex == sink) return state.tracePath(graph, source, sink);
+                queue[last++] = vertex;
             }
         }
-        if(search && !pathFound) parent.clear();
-        return parent;
+        return -1;
     }
 }
@@ -1,18 +1,49 @@
 package flow.searchalgorithm;
 
-import flow.datastructure.graph.FlowNetworkEdge;
-import flow.datastructure.graph.Vertex;
-import flow.flownetwork.FlowGraph;
-
-import java.util.List;
+import flow.flownetwork.CompressedResidualGraph;
 
 /**
  * Created by chrisat on 01.11.16.
+ *
+ * Depth first search for a path, kept on an explicit stack so that deep graphs can not overflow the call stack.
+ * Every vertex on the stack remembers the next arc to try in the cursor array of the state, so each arc is
+ * looked at once per search.
  */
 public class DepthFirst implements SearchAlgorithm {
 
     @Override
-    public List<FlowNetworkEdge> findPath(FlowGraph graph, Vertex source, Vertex sink, boolean search) {
-        return null;
+    public int findPath(CompressedResidualGraph graph, int source, int sink, SearchState state) {
+        int[] stack = state.getQueue();
+        int[] cursor = state.getCursor();
+        int top = 0;
+        int scanned = 0;
+
+        state.nextEpoch();
+        state.visit(source, -1);
+        cursor[source] = graph.firstArc(source);
+        stack[top++] = source;
+
+        while (top > 0) {
+            int current = stack[top - 1];
+            int arc = cursor[current];
+            if (arc == graph.lastArc(current)) {
+                top--;
+                continue;
+            }
+            cursor[current]++;
+            scanned++;
+
+            int vertex = graph.getHead(arc);
+            if (state.isVisited(vertex) || !state.isUsable(graph, arc)) continue;
+            state.visit(vertex, arc);
+            if (vertex == sink) {
+                state.scanned(scanned);
+                return state.tracePath(graph, source, sink);
+            }
+            cursor[vertex] = graph.firstArc(vertex);
+            stack[top++] = vertex;
+        }
+        state.scanned(scanned);
+        return -1;
     }
 }
@@ -1,21 +1,22 @@
 package flow.searchalgorithm;
 
-import flow.datastructure.graph.FlowNetworkEdge;
-import flow.datastructure.graph.Vertex;
-import flow.flownetwork.FlowGraph;
-
-import java.util.List;
+import flow.flownetwork.CompressedResidualGraph;
 
 /**
  * Created by chrisat on 28.10.16.
  */
 public interface SearchAlgorithm {
 
-    public List<FlowNetworkEdge> findPath(FlowGraph graph, Vertex source, Vertex sink, boolean search);
-
-    /*
-    public boolean markPath(Vertex source, Vertex sink);
-    public List<FlowNetworkEdge> getPath(Vertex sink);
-    */
+    /**
+     * Search for a path with residual capacity from source to sink.
+     * Nothing is allocated, the search works in the arrays of the given state and leaves the path
+     * found in state.getPath().
+     * @param graph - the residual graph to search.
+     * @param source - the start vertex.
+     * @param sink - the vertex to reach.
+     * @param state - working arrays owned by the caller, sized to the graph.
+     * @return the number of arcs on the path, -1 if the sink can not be reached.
+     */
+    int findPath(CompressedResidualGraph graph, int source, int sink, SearchState state);
 
 }
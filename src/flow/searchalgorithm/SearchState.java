@@ -0,0 +1,133 @@
+package flow.searchalgorithm;
+
+import flow.flownetwork.CompressedResidualGraph;
+
+import java.util.Arrays;
+
+/**
+ * Working arrays of a path search, owned by the solver and reused for every search on the same graph.
+ * A vertex counts as visited when its stamp equals the current epoch, so starting a new search is O(1)
+ * instead of clearing the visited set. The arc each vertex was reached through is kept in the parent array,
+ * and the s-t path found is traced back into the path array.
+ * The number of searches started and arcs scanned are counted for the solver metrics.
+ * Searches only follow arcs with at least the threshold of residual capacity, 1 unless a scaling algorithm
+ * raises it.
+ */
+public class SearchState {
+    private int[] parent;
+    private int[] visited;
+    private int[] queue;
+    private int[] path;
+    private int[] cursor;
+    private int epoch;
+    private long threshold = 1;
+    private long searches;
+    private long arcsScanned;
+
+    public SearchState(int numberOfVertices) {
+        parent = new int[numberOfVertices];
+        visited = new int[numberOfVertices];
+        queue = new int[numberOfVertices];
+        path = new int[numberOfVertices];
+        cursor = new int[numberOfVertices];
+    }
+
+    /**
+     * Start a new search, forgetting every visited vertex.
+     */
+    public void nextEpoch() {
+        searches++;
+        if (++epoch == Integer.MAX_VALUE) {
+            Arrays.fill(visited, 0);
+            epoch = 1;
+        }
+    }
+
+    /**
+     * Mark the vertex as visited in this search.
+     * @param vertex - the vertex reached.
+     * @param arc - the arc it was reached through, -1 for the start of the search.
+     */
+    public void visit(int vertex, int arc) {
+        visited[vertex] = epoch;
+        parent[vertex] = arc;
+    }
+
+    /**
+     * Count arcs looked at by the search, added once per vertex scanned rather than per arc.
+     */
+    public void scanned(int arcs) {
+        arcsScanned += arcs;
+    }
+
+    public long getSearches() {
+        return searches;
+    }
+
+    public long getArcsScanned() {
+        return arcsScanned;
+    }
+
+    /**
+     * @param threshold - the least residual capacity an arc needs to be followed, at least 1.
+     */
+    public void setThreshold(long threshold) {
+        if (threshold < 1) throw new IllegalArgumentException("The threshold must be at least 1");
+        this.threshold = threshold;
+    }
+
+    public long getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * @return true - if the arc has at least the threshold of residual capacity, else false.
+     */
+    public boolean isUsable(CompressedResidualGraph graph, int arc) {
+        return graph.residualFlow(arc) >= threshold;
+    }
+
+    public boolean isVisited(int vertex) {
+        return visited[vertex] == epoch;
+    }
+
+    public int getParentArc(int vertex) {
+        return parent[vertex];
+    }
+
+    /**
+     * Follow the parent arcs back from the sink and store the path in source to sink order.
+     * @return the number of arcs on the path.
+     */
+    public int tracePath(CompressedResidualGraph graph, int source, int sink) {
+        int length = 0;
+        for (int vertex = sink; vertex != source; vertex = graph.getTail(parent[vertex]))
+            length++;
+
+        int i = length;
+        for (int vertex = sink; vertex != source; vertex = graph.getTail(parent[vertex]))
+            path[--i] = parent[vertex];
+        return length;
+    }
+
+    /**
+     * @return scratch array of one slot per vertex, for a queue or stack.
+     */
+    public int[] getQueue() {
+        return queue;
+    }
+
+    /**
+     * @return scratch array of one slot per vertex, for the next arc to try at each vertex of a depth first search.
+     */
+    public int[] getCursor() {
+        return cursor;
+    }
+
+    /**
+     * @return the arcs of the last path found, from source to sink.
+     */
+    public int[] getPath() {
+        return path;
+    }
+}